@@ -0,0 +1,50 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cost of creating and wiring operations without running them.
+ * Run with the GC profiler, for example: gradle :benchmarks:jmh -Pjmh="AllocationBenchmark -prof gc".
+ * Its gc.alloc.rate.norm result is the number of bytes allocated per invocation.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+    // An operation that is never wired allocates no collections and no string id.
+    @Benchmark
+    public Operation bareOperation() {
+        return new BenchmarkOperation(null);
+    }
+
+    // Two operations and the dependency between them.
+    @Benchmark
+    public Operation operationWithDependency() {
+        Operation dependency = new BenchmarkOperation(null);
+        Operation operation = new BenchmarkOperation(null);
+        operation.addDependency(dependency);
+        return operation;
+    }
+
+    @Benchmark
+    public Operation operationWithObserverAndCondition() {
+        Operation operation = new BenchmarkOperation(null);
+        operation.addObserver(new Workloads.CountingObserver());
+        operation.addCondition(new Workloads.PassingCondition());
+        return operation;
+    }
+
+    @Benchmark
+    public String operationId() {
+        return new BenchmarkOperation(null).getOperationId();
+    }
+}
@@ -0,0 +1,55 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Tiny operations executed in micro-batches of different sizes, where each batch call costs 20us plus 1us per operation.
+ * A batch size of one runs every operation through its own batch call.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+    private static final int BURST_SIZE = 10000;
+
+    @Param({ "1", "8", "64", "256" })
+    public int maxBatchSize;
+
+    private OperationQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(8);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+        queue.registerBatchExecutor("write", new Workloads.SpinningBatchExecutor(20, 1), maxBatchSize, 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void batchedWrites(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch);
+            operation.setBatchType("write");
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+}
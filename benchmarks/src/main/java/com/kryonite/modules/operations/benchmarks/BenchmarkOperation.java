@@ -0,0 +1,101 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.CompletionHandler;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Counts down a latch on completion and optionally spins, sleeps, fails or finishes from a callback to simulate work.
+ */
+class BenchmarkOperation extends Operation {
+    static final ScheduledExecutorService CALLBACKS = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "benchmark-callbacks");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long spinMicros = 0;
+    private long sleepMillis = 0;
+    private long finishDelayMillis = -1;
+    private int failures = 0;
+    private long backoffMillis = 0;
+    private Workloads.ContendedResource resource = null;
+
+    BenchmarkOperation(final CountDownLatch latch) {
+        if (latch != null) {
+            setCompletionHandler(new CompletionHandler() {
+                @Override
+                protected void onComplete() {
+                    latch.countDown();
+                }
+            });
+        }
+    }
+
+    BenchmarkOperation spinning(long spinMicros) {
+        this.spinMicros = spinMicros;
+        return this;
+    }
+
+    BenchmarkOperation sleeping(long sleepMillis) {
+        this.sleepMillis = sleepMillis;
+        return this;
+    }
+
+    BenchmarkOperation finishingLater(long finishDelayMillis) {
+        this.finishDelayMillis = finishDelayMillis;
+        return this;
+    }
+
+    BenchmarkOperation using(Workloads.ContendedResource resource) {
+        this.resource = resource;
+        return this;
+    }
+
+    // Fails the first attempts. Without a retry policy, the operation sleeps through the backoff and tries again itself.
+    BenchmarkOperation failing(int failures, long backoffMillis) {
+        this.failures = failures;
+        this.backoffMillis = backoffMillis;
+        return this;
+    }
+
+    @Override
+    protected void execute() {
+        if (getRetryPolicy() == null) {
+            while (failures > 0) {
+                Workloads.spinMicros(spinMicros);
+                failures--;
+                sleep(backoffMillis);
+            }
+        } else if (failures > 0) {
+            Workloads.spinMicros(spinMicros);
+            failures--;
+            fail();
+            return;
+        }
+
+        if (finishDelayMillis >= 0) {
+            CALLBACKS.schedule(this::finish, finishDelayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        Workloads.spinMicros(spinMicros);
+        sleep(sleepMillis);
+        if (resource != null) {
+            resource.call();
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Cancellation storms and cascades. The graph is built and added to the queue before each invocation,
+ * and the invocation only cancels its root and waits until every operation has aborted.
+ * A storm aborts a wide layer blocked on one gate, and a cascade aborts a deep tree level by level. A fan-out of one makes the tree a chain.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CancellationBenchmark {
+    @Param({ "100000" })
+    public int size;
+
+    private OperationQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(8);
+    }
+
+    @State(Scope.Thread)
+    public static class Storm {
+        Operation gate;
+        CountDownLatch latch;
+
+        @Setup(Level.Invocation)
+        public void setUp(CancellationBenchmark benchmark) {
+            latch = new CountDownLatch(benchmark.size);
+            gate = new BenchmarkOperation(null);
+            List<Operation> operations = new ArrayList<>(benchmark.size);
+            for (int i = 0; i < benchmark.size; i++) {
+                Operation operation = new BenchmarkOperation(latch);
+                operation.addDependency(gate);
+                operations.add(operation);
+            }
+            benchmark.queue.addOperationGraph(operations);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cascade {
+        @Param({ "1", "4" })
+        public int fanOut;
+
+        Operation root;
+        CountDownLatch latch;
+
+        @Setup(Level.Invocation)
+        public void setUp(CancellationBenchmark benchmark) {
+            latch = new CountDownLatch(benchmark.size + 1);
+            List<Operation> operations = new ArrayList<>(benchmark.size + 1);
+            root = new BenchmarkOperation(latch);
+            operations.add(root);
+            for (int i = 1; i <= benchmark.size; i++) {
+                Operation operation = new BenchmarkOperation(latch);
+                operation.addDependency(operations.get((i - 1) / fanOut));
+                operations.add(operation);
+            }
+            benchmark.queue.addOperationGraph(operations.subList(1, operations.size()));
+        }
+    }
+
+    @Benchmark
+    public void storm(Storm storm, OperationCounter counter) {
+        storm.gate.cancel();
+        Workloads.await(storm.latch);
+        counter.operations += size;
+    }
+
+    @Benchmark
+    public void cascade(Cascade cascade, OperationCounter counter) {
+        cascade.root.cancel();
+        Workloads.await(cascade.latch);
+        counter.operations += size + 1;
+    }
+}
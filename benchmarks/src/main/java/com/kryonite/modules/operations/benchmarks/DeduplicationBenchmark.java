@@ -0,0 +1,56 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Operations spinning for 50us that compute one of a few hot keys, submitted with or without a deduplication key.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeduplicationBenchmark {
+    private static final int BURST_SIZE = 5000;
+    private static final int KEYS = 100;
+
+    @Param({ "false", "true" })
+    public boolean deduplicated;
+
+    private OperationQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(8);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void hotKeys(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch).spinning(50);
+            if (deduplicated) {
+                operation.setDeduplicationKey(i % KEYS);
+            }
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+}
@@ -0,0 +1,124 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.ExecutionMode;
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Executor lifecycle and thread use. Bursts of no-op operations run either on an executor created for every burst or on one kept alive
+ * with warm threads, blocking operations run either on a pool of platform threads or on virtual threads, and operations that finish
+ * from a callback run on two threads under an in-flight limit.
+ * NOTE: Virtual threads need Java 21 or later. On older runtimes the virtual thread case fails in its setup.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExecutorBenchmark {
+    private static final int BURST_SIZE = 1000;
+    private static final int BLOCKING_COUNT = 2000;
+    private static final int ASYNCHRONOUS_COUNT = 2000;
+
+    @State(Scope.Benchmark)
+    public static class Bursts {
+        @Param({ "0", "60000" })
+        public long executorKeepAlive;
+
+        OperationQueue queue;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            queue = new OperationQueue(8);
+            queue.canAutoFinishOperationsOnCompletion(true);
+            if (executorKeepAlive > 0) {
+                queue.setExecutorKeepAlive(executorKeepAlive);
+                queue.setWarmThreadCount(8);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            queue.shutdown();
+            queue.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Blocking {
+        @Param({ "FIXED_THREAD_POOL", "VIRTUAL_THREADS" })
+        public ExecutionMode executionMode;
+
+        OperationQueue queue;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            queue = executionMode == ExecutionMode.VIRTUAL_THREADS ? new OperationQueue(BLOCKING_COUNT, executionMode) : new OperationQueue(200);
+            queue.canAutoFinishOperationsOnCompletion(true);
+            queue.setExecutorKeepAlive(60000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            queue.shutdown();
+            queue.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class InFlightLimited {
+        OperationQueue queue;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            queue = new OperationQueue(2);
+            queue.setMaxInFlightOperations(200);
+            queue.setExecutorKeepAlive(60000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            queue.shutdown();
+            queue.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void burst(Bursts bursts, OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            bursts.queue.addOperation(new BenchmarkOperation(latch));
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+
+    // Operations that block for 10ms, as I/O bound operations do.
+    @Benchmark
+    public void blocking(Blocking blocking, OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BLOCKING_COUNT);
+        for (int i = 0; i < BLOCKING_COUNT; i++) {
+            blocking.queue.addOperation(new BenchmarkOperation(latch).sleeping(10));
+        }
+        Workloads.await(latch);
+        counter.operations += BLOCKING_COUNT;
+    }
+
+    // Operations that return from execute() right away and finish from a timer callback a millisecond later, as non-blocking I/O does.
+    @Benchmark
+    public void asynchronousInFlightLimited(InFlightLimited inFlightLimited, OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(ASYNCHRONOUS_COUNT);
+        for (int i = 0; i < ASYNCHRONOUS_COUNT; i++) {
+            inFlightLimited.queue.addOperation(new BenchmarkOperation(latch).finishingLater(1));
+        }
+        Workloads.await(latch);
+        counter.operations += ASYNCHRONOUS_COUNT;
+    }
+}
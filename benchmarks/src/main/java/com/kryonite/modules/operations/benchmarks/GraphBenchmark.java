@@ -0,0 +1,112 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.ExecutionMode;
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Dependency graphs of no-op operations in each execution mode: a linear chain, a chain of diamonds and a wide fan-out that fans back in.
+ * Each invocation creates, wires and runs a whole graph, and its sample time is the time until the whole graph has completed.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphBenchmark {
+    private static final int CHAIN_LENGTH = 10000;
+    private static final int DIAMOND_COUNT = 2500;
+    private static final int FAN_OUT_WIDTH = 10000;
+
+    @Param({ "FIXED_THREAD_POOL", "WORK_STEALING" })
+    public ExecutionMode executionMode;
+
+    private OperationQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(8, executionMode);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // Each operation depends on the previous one.
+    @Benchmark
+    public void chain(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(CHAIN_LENGTH);
+        Operation[] operations = new Operation[CHAIN_LENGTH];
+        for (int i = 0; i < CHAIN_LENGTH; i++) {
+            operations[i] = new BenchmarkOperation(latch);
+            if (i > 0) {
+                operations[i].addDependency(operations[i - 1]);
+            }
+        }
+
+        queue.addOperations(operations);
+        Workloads.await(latch);
+        counter.operations += CHAIN_LENGTH;
+    }
+
+    // Each diamond splits into two operations that join again, and the join starts the next diamond.
+    @Benchmark
+    public void diamonds(OperationCounter counter) {
+        int size = 3 * DIAMOND_COUNT + 1;
+        CountDownLatch latch = new CountDownLatch(size);
+        List<Operation> operations = new ArrayList<>(size);
+        Operation join = new BenchmarkOperation(latch);
+        operations.add(join);
+        for (int i = 0; i < DIAMOND_COUNT; i++) {
+            Operation left = new BenchmarkOperation(latch);
+            Operation right = new BenchmarkOperation(latch);
+            left.addDependency(join);
+            right.addDependency(join);
+            join = new BenchmarkOperation(latch);
+            join.addDependencies(left, right);
+            operations.add(left);
+            operations.add(right);
+            operations.add(join);
+        }
+
+        queue.addOperationGraph(operations);
+        Workloads.await(latch);
+        counter.operations += size;
+    }
+
+    // A single root releases a wide layer of operations, which all feed a single sink.
+    @Benchmark
+    public void fanOutFanIn(OperationCounter counter) {
+        int size = FAN_OUT_WIDTH + 2;
+        CountDownLatch latch = new CountDownLatch(size);
+        List<Operation> operations = new ArrayList<>(size);
+        Operation root = new BenchmarkOperation(latch);
+        Operation sink = new BenchmarkOperation(latch);
+        operations.add(root);
+        for (int i = 0; i < FAN_OUT_WIDTH; i++) {
+            Operation operation = new BenchmarkOperation(latch);
+            operation.addDependency(root);
+            sink.addDependency(operation);
+            operations.add(operation);
+        }
+        operations.add(sink);
+
+        queue.addOperationGraph(operations);
+        Workloads.await(latch);
+        counter.operations += size;
+    }
+}
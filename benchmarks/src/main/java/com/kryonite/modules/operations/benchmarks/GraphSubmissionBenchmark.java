@@ -0,0 +1,137 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.GraphTemplate;
+import com.kryonite.modules.operations.OperationQueue;
+import com.kryonite.modules.operations.GraphNodeFactory;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Ways of submitting a graph. A binary tree is added either one operation at a time or as one graph,
+ * and a small graph run over and over is either wired by hand or instantiated from a compiled template.
+ * The sample time of an invocation is the time until all of its operations have completed.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GraphSubmissionBenchmark {
+    private static final int TREE_SIZE = 20000;
+    private static final int GRAPH_RUNS = 100;
+    private static final int GRAPH_WIDTH = 10;
+    private static final int GRAPH_SIZE = 2 * GRAPH_WIDTH + 2;
+
+    private OperationQueue queue;
+    private GraphTemplate<CountDownLatch> template;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(8);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+
+        // A root, two layers where each operation depends on every operation of the layer above, and a sink.
+        template = new GraphTemplate<>();
+        GraphNodeFactory<CountDownLatch> nodeFactory = new GraphNodeFactory<CountDownLatch>() {
+            @Override
+            protected Operation create(CountDownLatch input) {
+                return new BenchmarkOperation(input);
+            }
+        };
+        int[] above = { template.addNode(nodeFactory) };
+        for (int layer = 0; layer < 2; layer++) {
+            int[] nodes = new int[GRAPH_WIDTH];
+            for (int i = 0; i < GRAPH_WIDTH; i++) {
+                nodes[i] = template.addNode(nodeFactory, above);
+            }
+            above = nodes;
+        }
+        template.addNode(nodeFactory, above);
+        template.compile();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void treeOneByOne(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(TREE_SIZE);
+        queue.addOperations(binaryTree(latch).toArray(new Operation[0]));
+        Workloads.await(latch);
+        counter.operations += TREE_SIZE;
+    }
+
+    @Benchmark
+    public void treeAsGraph(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(TREE_SIZE);
+        queue.addOperationGraph(binaryTree(latch));
+        Workloads.await(latch);
+        counter.operations += TREE_SIZE;
+    }
+
+    @Benchmark
+    public void graphRunsByHand(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(GRAPH_RUNS * GRAPH_SIZE);
+        for (int run = 0; run < GRAPH_RUNS; run++) {
+            List<Operation> operations = new ArrayList<>(GRAPH_SIZE);
+            Operation root = new BenchmarkOperation(latch);
+            operations.add(root);
+            List<Operation> layerAbove = List.of(root);
+            for (int layer = 0; layer < 2; layer++) {
+                List<Operation> layerOperations = new ArrayList<>(GRAPH_WIDTH);
+                for (int i = 0; i < GRAPH_WIDTH; i++) {
+                    Operation operation = new BenchmarkOperation(latch);
+                    for (Operation dependency : layerAbove) {
+                        operation.addDependency(dependency);
+                    }
+                    layerOperations.add(operation);
+                }
+                operations.addAll(layerOperations);
+                layerAbove = layerOperations;
+            }
+            Operation sink = new BenchmarkOperation(latch);
+            for (Operation dependency : layerAbove) {
+                sink.addDependency(dependency);
+            }
+            operations.add(sink);
+            queue.addOperationGraph(operations);
+        }
+        Workloads.await(latch);
+        counter.operations += GRAPH_RUNS * GRAPH_SIZE;
+    }
+
+    @Benchmark
+    public void graphRunsFromTemplate(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(GRAPH_RUNS * GRAPH_SIZE);
+        for (int run = 0; run < GRAPH_RUNS; run++) {
+            queue.addGraphRun(template.instantiate(latch));
+        }
+        Workloads.await(latch);
+        counter.operations += GRAPH_RUNS * GRAPH_SIZE;
+    }
+
+    private static List<Operation> binaryTree(CountDownLatch latch) {
+        List<Operation> operations = new ArrayList<>(TREE_SIZE);
+        for (int i = 0; i < TREE_SIZE; i++) {
+            Operation operation = new BenchmarkOperation(latch);
+            if (i > 0) {
+                operation.addDependency(operations.get((i - 1) / 2));
+            }
+            operations.add(operation);
+        }
+        return operations;
+    }
+}
@@ -0,0 +1,106 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.OperationQueue;
+import com.kryonite.modules.operations.EventOverflowPolicy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Observer- and condition-heavy operations. Every invocation submits a burst of operations and waits for all of them.
+ * Slow observers are notified either inline on the workers or through the event dispatcher of the queue.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ObserverBenchmark {
+    private static final int BURST_SIZE = 5000;
+
+    private OperationQueue queue;
+    private OperationQueue dispatchingQueue;
+    private Workloads.RemoteCondition remoteCondition;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = newQueue();
+        dispatchingQueue = newQueue();
+        dispatchingQueue.enableEventDispatcher(8192, EventOverflowPolicy.BLOCK);
+
+        // Takes a millisecond to answer and stays valid for 10ms, so most operations share an earlier answer.
+        remoteCondition = new Workloads.RemoteCondition();
+        remoteCondition.setValidityWindow(10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (OperationQueue queue : new OperationQueue[] { queue, dispatchingQueue }) {
+            queue.shutdown();
+            queue.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        dispatchingQueue.disableEventDispatcher();
+    }
+
+    // Every operation carries four conditions and four observers.
+    @Benchmark
+    public void observersAndConditions(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch);
+            for (int j = 0; j < 4; j++) {
+                operation.addCondition(new Workloads.PassingCondition());
+                operation.addObserver(new Workloads.CountingObserver());
+            }
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+
+    // Every operation spins for 10us and carries an observer that spins for another 10us.
+    @Benchmark
+    public void slowObserverInline(OperationCounter counter) {
+        runSlowObservers(queue, counter);
+    }
+
+    @Benchmark
+    public void slowObserverDispatched(OperationCounter counter) {
+        runSlowObservers(dispatchingQueue, counter);
+    }
+
+    @Benchmark
+    public void sharedAsyncCondition(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch);
+            operation.addCondition(remoteCondition);
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+
+    private void runSlowObservers(OperationQueue queue, OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch).spinning(10);
+            operation.addObserver(new Workloads.SpinningObserver(10));
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+
+    private static OperationQueue newQueue() {
+        OperationQueue queue = new OperationQueue(8);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+        return queue;
+    }
+}
@@ -0,0 +1,25 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.AuxCounters;
+
+/**
+ * Counts the operations completed by benchmarks whose invocations run many operations, such as a whole graph,
+ * so that throughput is reported in operations as well as in invocations.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class OperationCounter {
+    public long operations;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        operations = 0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.OperationQueue;
+import com.kryonite.modules.operations.OperationChannel;
+import com.kryonite.modules.operations.CompletionHandler;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A source, a transform and a sink stage over the same items, each spending 5us per item.
+ * Staged, each stage hands a whole list to the next once it finishes. Streamed, the stages run together and items flow through channels.
+ * The sample time of an invocation is the time until the sink has consumed every item.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+    private static final int ITEMS = 2000;
+    private static final long STAGE_MICROS = 5;
+
+    // Capacity of the channels between the stages. Zero stages the items through lists instead.
+    @Param({ "0", "64" })
+    public int channelCapacity;
+
+    private OperationQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(4);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void threeStages(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(1);
+        boolean isStreamed = channelCapacity > 0;
+        List<Integer> produced = new ArrayList<>(isStreamed ? 0 : ITEMS);
+        List<Integer> transformed = new ArrayList<>(isStreamed ? 0 : ITEMS);
+        List<OperationChannel<Integer>> channels = new ArrayList<>(2);
+
+        Operation source = new Operation() {
+            @Override
+            protected void execute() {
+                try {
+                    for (int i = 0; i < ITEMS; i++) {
+                        Workloads.spinMicros(STAGE_MICROS);
+                        if (isStreamed) {
+                            channels.get(0).send(i);
+                        } else {
+                            produced.add(i);
+                        }
+                    }
+                } catch (InterruptedException exception) {
+                    abort();
+                }
+            }
+        };
+        Operation transform = new Operation() {
+            @Override
+            protected void execute() {
+                try {
+                    if (isStreamed) {
+                        Integer item;
+                        while ((item = channels.get(0).receive()) != null) {
+                            Workloads.spinMicros(STAGE_MICROS);
+                            channels.get(1).send(item);
+                        }
+                        return;
+                    }
+                    for (Integer item : produced) {
+                        Workloads.spinMicros(STAGE_MICROS);
+                        transformed.add(item);
+                    }
+                } catch (InterruptedException exception) {
+                    abort();
+                }
+            }
+        };
+        Operation sink = new Operation() {
+            @Override
+            protected void execute() {
+                try {
+                    if (isStreamed) {
+                        while (channels.get(1).receive() != null) {
+                            Workloads.spinMicros(STAGE_MICROS);
+                        }
+                        return;
+                    }
+                    for (int i = 0; i < transformed.size(); i++) {
+                        Workloads.spinMicros(STAGE_MICROS);
+                    }
+                } catch (InterruptedException exception) {
+                    abort();
+                }
+            }
+        };
+        sink.setCompletionHandler(new CompletionHandler() {
+            @Override
+            protected void onComplete() {
+                latch.countDown();
+            }
+        });
+
+        if (isStreamed) {
+            channels.add(new OperationChannel<>(source, transform, channelCapacity));
+            channels.add(new OperationChannel<>(transform, sink, channelCapacity));
+        } else {
+            transform.addDependency(source);
+            sink.addDependency(transform);
+        }
+
+        queue.addOperations(source, transform, sink);
+        Workloads.await(latch);
+        counter.operations += ITEMS;
+    }
+}
@@ -0,0 +1,73 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.QueuePriority;
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Urgent operations submitted behind a backlog of low priority work, each spinning for 20us.
+ * The backlog is added before each invocation, and the invocation submits the urgent operations and waits only for them.
+ * Urgent operations with the same priority as the backlog show the wait behind it without priorities.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PriorityBenchmark {
+    private static final int BACKLOG_SIZE = 2000;
+    private static final int URGENT_COUNT = 50;
+
+    @Param({ "HIGH", "LOW" })
+    public QueuePriority urgentPriority;
+
+    private OperationQueue queue;
+    private CountDownLatch backlogLatch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(4);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Setup(Level.Invocation)
+    public void addBacklog() {
+        backlogLatch = new CountDownLatch(BACKLOG_SIZE);
+        for (int i = 0; i < BACKLOG_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(backlogLatch).spinning(20);
+            operation.setQueuePriority(QueuePriority.LOW);
+            queue.addOperation(operation);
+        }
+    }
+
+    @TearDown(Level.Invocation)
+    public void drainBacklog() {
+        Workloads.await(backlogLatch);
+    }
+
+    @Benchmark
+    public void urgentBehindBacklog(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(URGENT_COUNT);
+        for (int i = 0; i < URGENT_COUNT; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch).spinning(20);
+            operation.setQueuePriority(urgentPriority);
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += URGENT_COUNT;
+    }
+}
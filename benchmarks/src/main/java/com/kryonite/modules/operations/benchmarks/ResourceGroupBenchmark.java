@@ -0,0 +1,64 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.ResourceGroup;
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Two queues of 8 threads each calling a resource that slows down with every concurrent caller, as a database under lock contention does,
+ * either freely or through a resource group of four shared by both queues.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResourceGroupBenchmark {
+    private static final int BURST_SIZE = 400;
+
+    @Param({ "false", "true" })
+    public boolean grouped;
+
+    private OperationQueue[] queues;
+    private ResourceGroup resourceGroup;
+    private final Workloads.ContendedResource resource = new Workloads.ContendedResource();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queues = new OperationQueue[] { new OperationQueue(8), new OperationQueue(8) };
+        for (OperationQueue queue : queues) {
+            queue.canAutoFinishOperationsOnCompletion(true);
+            queue.setExecutorKeepAlive(60000);
+        }
+        resourceGroup = grouped ? new ResourceGroup("database", 4) : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        for (OperationQueue queue : queues) {
+            queue.shutdown();
+            queue.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public void contendedCalls(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch).using(resource);
+            if (resourceGroup != null) {
+                operation.setResourceGroup(resourceGroup);
+            }
+            queues[i % queues.length].addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+}
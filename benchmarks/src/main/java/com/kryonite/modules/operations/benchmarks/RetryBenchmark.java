@@ -0,0 +1,62 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.RetryPolicy;
+import com.kryonite.modules.operations.OperationQueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Operations spinning for 50us where every fourth one fails its first two attempts, with a 5ms backoff between attempts.
+ * The operations either sleep through the backoff on their thread, or fail the attempt and are retried by the queue.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RetryBenchmark {
+    private static final int BURST_SIZE = 2000;
+
+    @Param({ "false", "true" })
+    public boolean scheduled;
+
+    private OperationQueue queue;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(4);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public void flaky(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch).spinning(50);
+            if (i % 4 == 0) {
+                operation.failing(2, 5);
+                if (scheduled) {
+                    RetryPolicy retryPolicy = new RetryPolicy(3, 5, 5);
+                    retryPolicy.setJitter(0);
+                    operation.setRetryPolicy(retryPolicy);
+                }
+            }
+            queue.addOperation(operation);
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.OperationQueue;
+import com.kryonite.modules.operations.SchedulingPolicy;
+
+import java.util.List;
+import java.util.Random;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Completion time of graphs whose critical path is longer than the rest of their work, under each scheduling policy.
+ * The sample time of an invocation is the time until its whole graph has completed.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SchedulingPolicyBenchmark {
+    private static final int CHAINS = 2;
+    private static final int CHAIN_LENGTH = 50;
+    private static final int LEAVES = 800;
+    private static final int LAYERS = 30;
+    private static final int LAYER_WIDTH = 16;
+
+    @Param
+    public SchedulingPolicy schedulingPolicy;
+
+    private OperationQueue queue;
+
+    // The queue outlives the iterations, so the warm-up iterations record the execution times the measured ones are ranked by.
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new OperationQueue(8);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+        queue.setSchedulingPolicy(schedulingPolicy);
+        queue.setExecutionTimeEstimate("chain", 2, TimeUnit.MILLISECONDS);
+        queue.setExecutionTimeEstimate("leaf", 1, TimeUnit.MILLISECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    // A few long chains of operations sleeping 2ms, submitted along with many independent operations sleeping 1ms.
+    @Benchmark
+    public void chainsAndLeaves(OperationCounter counter) {
+        int size = CHAINS * CHAIN_LENGTH + LEAVES;
+        CountDownLatch latch = new CountDownLatch(size);
+        List<Operation> operations = new ArrayList<>(size);
+        for (int i = 0; i < LEAVES; i++) {
+            BenchmarkOperation operation = new BenchmarkOperation(latch).sleeping(1);
+            operation.setOperationType("leaf");
+            operations.add(operation);
+        }
+        for (int i = 0; i < CHAINS; i++) {
+            Operation previous = null;
+            for (int j = 0; j < CHAIN_LENGTH; j++) {
+                BenchmarkOperation operation = new BenchmarkOperation(latch).sleeping(2);
+                operation.setOperationType("chain");
+                if (previous != null) {
+                    operation.addDependency(previous);
+                }
+                operations.add(operation);
+                previous = operation;
+            }
+        }
+
+        queue.addOperationGraph(operations);
+        Workloads.await(latch);
+        counter.operations += size;
+    }
+
+    // A random graph of layers, where every operation depends on up to three operations of the layer above.
+    // One in ten operations sleeps 5ms and the rest sleep 1ms, and the queue only learns which from the execution times it records.
+    @Benchmark
+    public void layeredGraph(OperationCounter counter) {
+        int size = LAYERS * LAYER_WIDTH;
+        Random random = new Random(42);
+        CountDownLatch latch = new CountDownLatch(size);
+        List<Operation> operations = new ArrayList<>(size);
+        for (int i = 0; i < LAYERS; i++) {
+            for (int j = 0; j < LAYER_WIDTH; j++) {
+                boolean isSlow = random.nextInt(10) == 0;
+                BenchmarkOperation operation = new BenchmarkOperation(latch).sleeping(isSlow ? 5 : 1);
+                operation.setOperationType("layer-" + i + "-" + j);
+                if (i > 0) {
+                    for (int k = random.nextInt(3); k >= 0; k--) {
+                        operation.addDependency(operations.get((i - 1) * LAYER_WIDTH + random.nextInt(LAYER_WIDTH)));
+                    }
+                }
+                operations.add(operation);
+            }
+        }
+
+        queue.addOperationGraph(operations);
+        Workloads.await(latch);
+        counter.operations += size;
+    }
+}
@@ -0,0 +1,129 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.OperationQueue;
+import com.kryonite.modules.operations.OperationJournal;
+
+import jdk.jfr.Recording;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Submission of independent no-op operations, on a plain queue and with metrics, a flight recording, a journal or a queue timeout.
+ * A burst submits many operations and waits for all of them, which shows the operations per second the queue sustains.
+ * A round trip submits a single operation from each of several threads and waits for it, which shows the latency percentiles of one operation.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SubmissionBenchmark {
+    private static final int BURST_SIZE = 10000;
+
+    public enum Configuration {
+        PLAIN,
+        METRICS,
+        FLIGHT_RECORDING,
+        JOURNAL,
+        OPERATION_TIMEOUT
+    }
+
+    @Param
+    public Configuration configuration;
+
+    private OperationQueue queue;
+    private Path journalDirectory;
+    private OperationJournal journal;
+    private Recording recording;
+    private final byte[] journalPayload = new byte[16];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        queue = new OperationQueue(8);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setExecutorKeepAlive(60000);
+
+        switch (configuration) {
+            case METRICS:
+                queue.setName("submission-benchmark");
+                queue.enableMetrics();
+                break;
+            case FLIGHT_RECORDING:
+                // Only the operation events are recorded, to show their cost while enabled.
+                recording = new Recording();
+                recording.enable("com.kryonite.operations.Execution");
+                recording.enable("com.kryonite.operations.Completion");
+                recording.enable("com.kryonite.operations.Dependency");
+                recording.start();
+                break;
+            case JOURNAL:
+                journalDirectory = Files.createTempDirectory("operation-journal");
+                journal = new OperationJournal(journalDirectory);
+                queue.setJournal(journal);
+                break;
+            case OPERATION_TIMEOUT:
+                queue.setOperationTimeout(60000);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void compactJournal() throws IOException {
+        if (journal != null) {
+            journal.compact();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        queue.shutdown();
+        queue.awaitTermination(10, TimeUnit.SECONDS);
+        queue.disableMetrics();
+        if (recording != null) {
+            recording.close();
+        }
+        if (journal != null) {
+            journal.close();
+            Files.deleteIfExists(journalDirectory.resolve("operations.log"));
+            Files.deleteIfExists(journalDirectory);
+        }
+    }
+
+    @Benchmark
+    public void burst(OperationCounter counter) {
+        CountDownLatch latch = new CountDownLatch(BURST_SIZE);
+        for (int i = 0; i < BURST_SIZE; i++) {
+            queue.addOperation(newOperation(latch));
+        }
+        Workloads.await(latch);
+        counter.operations += BURST_SIZE;
+    }
+
+    @Benchmark
+    @Threads(4)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void roundTrip() {
+        CountDownLatch latch = new CountDownLatch(1);
+        queue.addOperation(newOperation(latch));
+        Workloads.await(latch);
+    }
+
+    private BenchmarkOperation newOperation(CountDownLatch latch) {
+        BenchmarkOperation operation = new BenchmarkOperation(latch);
+        if (journal != null) {
+            operation.setJournalEntry("benchmark", journalPayload);
+        }
+        return operation;
+    }
+}
@@ -0,0 +1,128 @@
+package com.kryonite.modules.operations.benchmarks;
+
+import com.kryonite.modules.operations.Operation;
+import com.kryonite.modules.operations.BatchExecutor;
+import com.kryonite.modules.operations.OperationObserver;
+import com.kryonite.modules.operations.OperationCondition;
+import com.kryonite.modules.operations.AsyncOperationCondition;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulated work and listeners shared by the benchmarks.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    static void spinMicros(long micros) {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    // A call takes 1ms, plus 0.125ms times the square of the number of other calls in progress, as a database under lock contention does.
+    static class ContendedResource {
+        private final AtomicInteger activeCalls = new AtomicInteger(0);
+
+        void call() {
+            int others = activeCalls.getAndIncrement();
+            long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(1000 + 125 * others * others);
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+            activeCalls.decrementAndGet();
+        }
+    }
+
+    static class PassingCondition extends OperationCondition {
+        @Override
+        protected boolean evaluate() {
+            return true;
+        }
+    }
+
+    // Answers after a millisecond, as a remote check might.
+    static class RemoteCondition extends AsyncOperationCondition {
+        @Override
+        protected CompletionStage<Boolean> evaluateAsync() {
+            CompletableFuture<Boolean> result = new CompletableFuture<>();
+            BenchmarkOperation.CALLBACKS.schedule(() -> result.complete(true), 1, TimeUnit.MILLISECONDS);
+            return result;
+        }
+    }
+
+    // Each batch call costs a fixed time plus a time per operation, as a batched write might.
+    static class SpinningBatchExecutor extends BatchExecutor {
+        private final long callMicros;
+        private final long operationMicros;
+
+        SpinningBatchExecutor(long callMicros, long operationMicros) {
+            this.callMicros = callMicros;
+            this.operationMicros = operationMicros;
+        }
+
+        @Override
+        protected void executeBatch(List<Operation> operations) {
+            spinMicros(callMicros + operationMicros * operations.size());
+        }
+    }
+
+    // Spins on every finish, as a logging observer might.
+    static class SpinningObserver extends OperationObserver {
+        private final long spinMicros;
+
+        SpinningObserver(long spinMicros) {
+            this.spinMicros = spinMicros;
+        }
+
+        @Override
+        protected void operationDidStart() {
+        }
+
+        @Override
+        protected void operationDidAbort() {
+        }
+
+        @Override
+        protected void operationDidFinish() {
+            spinMicros(spinMicros);
+        }
+    }
+
+    static class CountingObserver extends OperationObserver {
+        private static final AtomicInteger EVENTS = new AtomicInteger(0);
+
+        @Override
+        protected void operationDidStart() {
+            EVENTS.incrementAndGet();
+        }
+
+        @Override
+        protected void operationDidAbort() {
+            EVENTS.incrementAndGet();
+        }
+
+        @Override
+        protected void operationDidFinish() {
+            EVENTS.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Admission policy decides what an operation queue does with a new operation once it holds as many operations as its capacity.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public enum AdmissionPolicy {
+    /**
+     * Blocks the caller until an operation completes.
+     */
+    BLOCK,
+
+    /**
+     * Blocks the caller until an operation completes or the admission timeout of the queue elapses.
+     */
+    BLOCK_WITH_TIMEOUT,
+
+    /**
+     * Rejects the operation right away.
+     */
+    REJECT,
+
+    /**
+     * Runs the operation on the caller thread, if its dependencies are satisfied. Otherwise blocks as BLOCK does.
+     */
+    CALLER_RUNS
+}
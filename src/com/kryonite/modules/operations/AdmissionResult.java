@@ -0,0 +1,37 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Admission result tells what happened to an operation added to an operation queue.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public enum AdmissionResult {
+    /**
+     * The operation was added to the queue.
+     */
+    ACCEPTED,
+
+    /**
+     * The queue was full and the operation was not added.
+     */
+    REJECTED,
+
+    /**
+     * The queue stayed full for the whole admission timeout and the operation was not added.
+     */
+    TIMED_OUT,
+
+    /**
+     * The queue was full and the operation was executed on the caller thread.
+     */
+    RAN_ON_CALLER;
+
+    /**
+     * Returns true, if the operation was taken by the queue, either to run later or on the caller thread.
+     * @return
+     */
+    public boolean isAdmitted() {
+        return this == ACCEPTED || this == RAN_ON_CALLER;
+    }
+}
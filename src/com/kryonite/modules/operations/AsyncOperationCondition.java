@@ -0,0 +1,75 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Async operation condition represents a condition that is checked without blocking, such as a quota or a feature flag held by a remote service.
+ * The queue evaluates it once the operation is ready and before the operation is dispatched, so the operation takes no executor slot while it waits,
+ * and cancels the operation if the condition is not met or fails.
+ *
+ * A single condition can be added to many operations. Concurrent evaluations share one result, and a result is reused until the validity window elapses.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public abstract class AsyncOperationCondition extends OperationCondition {
+    private long validityWindow = 0;
+    private CompletableFuture<Boolean> result = null;
+    private volatile long evaluatedAt = 0;
+
+    /**
+     * Returns a stage that completes with true, if the condition is met.
+     * @return
+     */
+    protected abstract CompletionStage<Boolean> evaluateAsync();
+
+    /**
+     * Sets how long a result is reused for the operations evaluating the condition afterwards.
+     * @param validityWindow - Validity window in milliseconds. Zero only shares evaluations that are in progress.
+     */
+    public synchronized void setValidityWindow(long validityWindow) {
+        this.validityWindow = TimeUnit.MILLISECONDS.toNanos(validityWindow);
+    }
+
+    /**
+     * Blocks on the asynchronous evaluation. Only used when an operation runs outside a queue.
+     * @return
+     */
+    @Override
+    protected final boolean evaluate() {
+        try {
+            return Boolean.TRUE.equals(evaluateShared().join());
+        } catch (CompletionException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the result in progress or still valid, or starts a new evaluation.
+     * Failed evaluations are never reused.
+     */
+    synchronized CompletableFuture<Boolean> evaluateShared() {
+        CompletableFuture<Boolean> current = result;
+        if (current != null && !current.isCompletedExceptionally()
+                && (!current.isDone() || System.nanoTime() - evaluatedAt <= validityWindow)) {
+            return current;
+        }
+
+        CompletableFuture<Boolean> evaluation;
+        try {
+            evaluation = evaluateAsync().toCompletableFuture();
+        } catch (RuntimeException exception) {
+            evaluation = new CompletableFuture<>();
+            evaluation.completeExceptionally(exception);
+        }
+
+        result = evaluation.thenApply(met -> {
+            evaluatedAt = System.nanoTime();
+            return met;
+        });
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+
+/**
+ * Batch executor executes the ready operations of a batch type together, for operations so small that executing each on its own costs more than the work itself.
+ * The queue collects the ready operations of the type up to a maximum batch size or linger time and hands them over in a single call.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public abstract class BatchExecutor {
+    /**
+     * Executes the operations of a batch. Each operation is still finished or aborted on its own, here or later,
+     * unless the queue auto finishes operations. Operations that are still pending when this throws are aborted.
+     * Cancelling an operation of the batch, directly or by a timeout, interrupts the thread executing the batch.
+     * @param operations - Operations of the batch, in the order they became ready. Cancelled operations are left out.
+     */
+    protected abstract void executeBatch(List<Operation> operations);
+}
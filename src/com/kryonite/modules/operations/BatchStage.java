@@ -0,0 +1,160 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the ready operations of a batch type and hands them to the queue as a single batch operation,
+ * once the maximum batch size is reached or the linger time of the first collected operation has elapsed.
+ */
+class BatchStage {
+    private final OperationQueue operationQueue;
+    private final BatchExecutor batchExecutor;
+    private final int maxBatchSize;
+    private final long linger;
+
+    private List<Operation> pendingOperations = null;
+    private TimeoutScheduler.Timeout lingerTimeout = null;
+
+    BatchStage(OperationQueue operationQueue, BatchExecutor batchExecutor, int maxBatchSize, long linger) {
+        this.operationQueue = operationQueue;
+        this.batchExecutor = batchExecutor;
+        this.maxBatchSize = Math.max(maxBatchSize, 1);
+        this.linger = linger;
+    }
+
+    void add(Operation operation) {
+        List<Operation> batch = null;
+        synchronized (this) {
+            if (pendingOperations == null) {
+                pendingOperations = new ArrayList<>(Math.min(maxBatchSize, 64));
+            }
+
+            pendingOperations.add(operation);
+            if (pendingOperations.size() >= maxBatchSize) {
+                batch = takePendingOperations();
+            } else if (lingerTimeout == null) {
+                lingerTimeout = TimeoutScheduler.getInstance().schedule(this::flush, linger);
+            }
+        }
+
+        if (batch != null) {
+            operationQueue.dispatchBatch(new BatchOperation(batchExecutor, batch));
+        }
+    }
+
+    /**
+     * Hands the collected operations over right away.
+     */
+    void flush() {
+        List<Operation> batch;
+        synchronized (this) {
+            batch = takePendingOperations();
+        }
+
+        if (batch != null) {
+            operationQueue.dispatchBatch(new BatchOperation(batchExecutor, batch));
+        }
+    }
+
+    private List<Operation> takePendingOperations() {
+        List<Operation> batch = pendingOperations;
+        pendingOperations = null;
+        if (lingerTimeout != null) {
+            lingerTimeout.cancel();
+            lingerTimeout = null;
+        }
+        return batch;
+    }
+
+    /**
+     * Runs the members of a batch through the batch executor. The batch itself belongs to no queue,
+     * so it never shows up in the operations of the queue or its metrics, and it finishes once the batch executor returns.
+     * Its in-flight permit is held until the batch and every member that joined it have completed,
+     * so members finishing asynchronously still count against the in-flight limit of the queue.
+     */
+    static final class BatchOperation extends Operation {
+        private final BatchExecutor batchExecutor;
+        private final List<Operation> members;
+        private final OperationQueue operationQueue;
+        // Joined members that have not completed yet, plus one for the batch itself.
+        private final AtomicInteger pendingCompletions = new AtomicInteger(1);
+
+        private BatchOperation(BatchExecutor batchExecutor, List<Operation> members) {
+            this.batchExecutor = batchExecutor;
+            this.members = members;
+            this.operationQueue = members.get(0).getOperationQueue();
+
+            QueuePriority priority = QueuePriority.VERY_LOW;
+            for (Operation member : members) {
+                if (member.getQueuePriority().getValue() > priority.getValue()) {
+                    priority = member.getQueuePriority();
+                }
+            }
+            setQueuePriority(priority);
+        }
+
+        @Override
+        protected void execute() {
+            // Members record the batch thread before they start, so cancelling one, directly or by a timeout, interrupts the batch.
+            Thread batchThread = Thread.currentThread();
+            List<Operation> startedMembers = new ArrayList<>(members.size());
+            for (Operation member : members) {
+                pendingCompletions.incrementAndGet();
+                member.joinBatch(this);
+                member.setExecutingThread(batchThread);
+                if (member.beginExecution()) {
+                    startedMembers.add(member);
+                } else {
+                    member.setExecutingThread(null);
+                    // A member that completed while joining already reported itself.
+                    if (member.leaveBatch() != null) {
+                        memberDidComplete();
+                    }
+                }
+            }
+
+            boolean succeeded = false;
+            try {
+                if (!startedMembers.isEmpty()) {
+                    batchExecutor.executeBatch(Collections.unmodifiableList(startedMembers));
+                }
+                succeeded = true;
+            } finally {
+                for (Operation member : startedMembers) {
+                    member.setExecutingThread(null);
+                    member.endExecution(succeeded);
+                }
+                finish();
+            }
+        }
+
+        /**
+         * Cancels the members along with the batch, so members are never left behind by a batch that does not run.
+         */
+        @Override
+        public void cancel() {
+            for (Operation member : members) {
+                member.cancel();
+            }
+            super.cancel();
+        }
+
+        @Override
+        void operationDidComplete() {
+            releaseCompletion();
+        }
+
+        void memberDidComplete() {
+            releaseCompletion();
+        }
+
+        private void releaseCompletion() {
+            if (pendingCompletions.decrementAndGet() == 0) {
+                operationQueue.releaseInFlightPermit(this);
+            }
+        }
+    }
+}
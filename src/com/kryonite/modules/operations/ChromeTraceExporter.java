@@ -0,0 +1,295 @@
+package com.kryonite.modules.operations;
+
+import java.util.Map;
+import java.util.List;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.io.IOException;
+import java.io.BufferedWriter;
+import java.time.Instant;
+import java.time.Duration;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Chrome trace exporter turns a flight recording of operation events into the Chrome trace event format,
+ * which chrome://tracing and Perfetto display as a timeline with one process per queue and one track per thread.
+ *
+ * Executions become slices, completions become instant markers, and every dependency edge becomes a flow arrow
+ * from the thread that completed the dependency to the execution it released. Gaps between slices on a track are idle time.
+ * The critical path, the chain of executions each released by the dependency that resolved last, is highlighted from the
+ * execution that ended last.
+ *
+ * Usage: java com.kryonite.modules.operations.ChromeTraceExporter recording.jfr trace.json
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class ChromeTraceExporter {
+    private static final String CRITICAL_PATH_COLOR = "terrible";
+
+    private final Map<String, Integer> processIds = new HashMap<>();
+    private final Map<Long, List<Execution>> executionsByOperation = new HashMap<>();
+    private final Map<Long, List<Edge>> edgesByDependent = new HashMap<>();
+    private final List<Execution> executions = new ArrayList<>();
+    private final List<RecordedEvent> completions = new ArrayList<>();
+    private final Map<String, String> threadNames = new HashMap<>();
+    private Instant origin = null;
+
+    /**
+     * Reads the operation events from the recording and writes them to the trace file.
+     * @param recording - A flight recording that includes the operation events.
+     * @param traceFile
+     * @throws IOException
+     */
+    public static void export(Path recording, Path traceFile) throws IOException {
+        ChromeTraceExporter exporter = new ChromeTraceExporter();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recording)) {
+            exporter.read(event);
+        }
+
+        try (BufferedWriter writer = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8)) {
+            exporter.write(writer);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: java com.kryonite.modules.operations.ChromeTraceExporter recording.jfr trace.json");
+            return;
+        }
+        export(Path.of(args[0]), Path.of(args[1]));
+    }
+
+    private ChromeTraceExporter() {
+    }
+
+    private void read(RecordedEvent event) {
+        String name = event.getEventType().getName();
+        if (!name.equals(OperationEvents.EXECUTION) && !name.equals(OperationEvents.COMPLETION) && !name.equals(OperationEvents.DEPENDENCY)) {
+            return;
+        }
+
+        if (origin == null || event.getStartTime().isBefore(origin)) {
+            origin = event.getStartTime();
+        }
+
+        switch (name) {
+            case OperationEvents.EXECUTION:
+                Execution execution = new Execution(event, processId(event.getString("queue")), threadId(event));
+                executions.add(execution);
+                executionsByOperation.computeIfAbsent(execution.operationId, id -> new ArrayList<>(1)).add(execution);
+                break;
+            case OperationEvents.COMPLETION:
+                completions.add(event);
+                break;
+            case OperationEvents.DEPENDENCY:
+                Edge edge = new Edge(event, processId(event.getString("queue")), threadId(event));
+                edgesByDependent.computeIfAbsent(edge.dependentId, id -> new ArrayList<>(2)).add(edge);
+                break;
+        }
+    }
+
+    private void write(BufferedWriter writer) throws IOException {
+        HashSet<Execution> criticalPath = findCriticalPath();
+        Separator separator = new Separator(writer);
+        writer.write("{\"traceEvents\":[\n");
+
+        for (Map.Entry<String, Integer> process : processIds.entrySet()) {
+            separator.next();
+            writer.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":" + process.getValue() + ",\"args\":{\"name\":" + quote(process.getKey()) + "}}");
+        }
+        for (Map.Entry<String, String> thread : threadNames.entrySet()) {
+            String[] ids = thread.getKey().split(":");
+            separator.next();
+            writer.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + ids[0] + ",\"tid\":" + ids[1] + ",\"args\":{\"name\":" + quote(thread.getValue()) + "}}");
+        }
+
+        for (Execution execution : executions) {
+            separator.next();
+            writer.write("{\"name\":" + quote(execution.operationType) + ",\"cat\":\"execution\",\"ph\":\"X\",\"ts\":" + micros(execution.start)
+                    + ",\"dur\":" + Math.max(execution.duration.toNanos() / 1000.0, 0.001) + ",\"pid\":" + execution.pid + ",\"tid\":" + execution.tid
+                    + (criticalPath.contains(execution) ? ",\"cname\":\"" + CRITICAL_PATH_COLOR + "\"" : "")
+                    + ",\"args\":{\"operationId\":" + execution.operationId + ",\"attempt\":" + execution.attempt
+                    + ",\"outcome\":" + quote(execution.outcome) + ",\"criticalPath\":" + criticalPath.contains(execution) + "}}");
+        }
+
+        for (RecordedEvent completion : completions) {
+            separator.next();
+            writer.write("{\"name\":" + quote(completion.getString("completion")) + ",\"cat\":\"completion\",\"ph\":\"i\",\"s\":\"t\",\"ts\":" + micros(completion.getStartTime())
+                    + ",\"pid\":" + processId(completion.getString("queue")) + ",\"tid\":" + threadId(completion)
+                    + ",\"args\":{\"operationId\":" + completion.getLong("operationId") + ",\"operationType\":" + quote(completion.getString("operationType")) + "}}");
+        }
+
+        // Each edge is drawn from where the dependency resolved to the first execution of the dependent that started after it.
+        long flowId = 0;
+        for (List<Edge> edges : edgesByDependent.values()) {
+            for (Edge edge : edges) {
+                Execution released = findReleasedExecution(edge);
+                if (released == null) {
+                    continue;
+                }
+
+                flowId++;
+                separator.next();
+                writer.write("{\"name\":\"dependency\",\"cat\":\"dependency\",\"ph\":\"s\",\"id\":" + flowId + ",\"ts\":" + micros(edge.time)
+                        + ",\"pid\":" + edge.pid + ",\"tid\":" + edge.tid + ",\"args\":{\"dependencyId\":" + edge.dependencyId
+                        + ",\"dependencyAborted\":" + edge.dependencyAborted + "}}");
+                separator.next();
+                writer.write("{\"name\":\"dependency\",\"cat\":\"dependency\",\"ph\":\"f\",\"bp\":\"e\",\"id\":" + flowId + ",\"ts\":" + micros(released.start)
+                        + ",\"pid\":" + released.pid + ",\"tid\":" + released.tid + "}");
+            }
+        }
+
+        writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+    }
+
+    /**
+     * Walks back from the execution that ended last, through the dependency that resolved last before each execution started.
+     */
+    private HashSet<Execution> findCriticalPath() {
+        HashSet<Execution> criticalPath = new HashSet<>();
+        Execution last = null;
+        for (Execution execution : executions) {
+            if (last == null || execution.end().isAfter(last.end())) {
+                last = execution;
+            }
+        }
+
+        Execution current = last;
+        while (current != null && criticalPath.add(current)) {
+            Edge latestEdge = null;
+            for (Edge edge : edgesByDependent.getOrDefault(current.operationId, new ArrayList<>(0))) {
+                if (!edge.time.isAfter(current.start) && (latestEdge == null || edge.time.isAfter(latestEdge.time))) {
+                    latestEdge = edge;
+                }
+            }
+            current = latestEdge != null ? findLatestExecutionBefore(latestEdge.dependencyId, latestEdge.time) : null;
+        }
+        return criticalPath;
+    }
+
+    private Execution findReleasedExecution(Edge edge) {
+        Execution released = null;
+        for (Execution execution : executionsByOperation.getOrDefault(edge.dependentId, new ArrayList<>(0))) {
+            if (!execution.start.isBefore(edge.time) && (released == null || execution.start.isBefore(released.start))) {
+                released = execution;
+            }
+        }
+        return released;
+    }
+
+    private Execution findLatestExecutionBefore(long operationId, Instant time) {
+        Execution latest = null;
+        for (Execution execution : executionsByOperation.getOrDefault(operationId, new ArrayList<>(0))) {
+            if (!execution.start.isAfter(time) && (latest == null || execution.start.isAfter(latest.start))) {
+                latest = execution;
+            }
+        }
+        return latest;
+    }
+
+    private int processId(String queue) {
+        return processIds.computeIfAbsent(queue != null ? queue : "(no queue)", name -> processIds.size() + 1);
+    }
+
+    private long threadId(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        if (thread == null) {
+            return 0;
+        }
+
+        String queue = event.getString("queue");
+        threadNames.putIfAbsent(processId(queue) + ":" + thread.getJavaThreadId(), thread.getJavaName());
+        return thread.getJavaThreadId();
+    }
+
+    private double micros(Instant time) {
+        return Duration.between(origin, time).toNanos() / 1000.0;
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character == '"' || character == '\\') {
+                builder.append('\\').append(character);
+            } else if (character < 0x20) {
+                builder.append(String.format("\\u%04x", (int) character));
+            } else {
+                builder.append(character);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private static final class Execution {
+        private final long operationId;
+        private final String operationType;
+        private final int attempt;
+        private final String outcome;
+        private final Instant start;
+        private final Duration duration;
+        private final int pid;
+        private final long tid;
+
+        private Execution(RecordedEvent event, int pid, long tid) {
+            this.operationId = event.getLong("operationId");
+            this.operationType = event.getString("operationType");
+            this.attempt = event.getInt("attempt");
+            this.outcome = event.getString("outcome");
+            this.start = event.getStartTime();
+            this.duration = event.getDuration();
+            this.pid = pid;
+            this.tid = tid;
+        }
+
+        private Instant end() {
+            return start.plus(duration);
+        }
+    }
+
+    private static final class Edge {
+        private final long dependentId;
+        private final long dependencyId;
+        private final boolean dependencyAborted;
+        private final Instant time;
+        private final int pid;
+        private final long tid;
+
+        private Edge(RecordedEvent event, int pid, long tid) {
+            this.dependentId = event.getLong("operationId");
+            this.dependencyId = event.getLong("dependencyId");
+            this.dependencyAborted = event.getBoolean("dependencyAborted");
+            this.time = event.getStartTime();
+            this.pid = pid;
+            this.tid = tid;
+        }
+    }
+
+    // Writes the commas between trace events.
+    private static final class Separator {
+        private final BufferedWriter writer;
+        private boolean isFirst = true;
+
+        private Separator(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        private void next() throws IOException {
+            if (!isFirst) {
+                writer.write(",\n");
+            }
+            isFirst = false;
+        }
+    }
+}
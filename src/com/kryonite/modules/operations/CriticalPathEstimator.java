@@ -0,0 +1,106 @@
+package com.kryonite.modules.operations;
+
+import java.util.Set;
+import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ranks ready operations by the work that depends on them. The rank of an operation is its own estimated execution time
+ * plus the largest rank among its dependents, which is the length of the longest path from the operation to the end of the graph.
+ * Ranks are memoized on the operations, so ranking a whole graph visits each operation and dependency once.
+ * NOTE: A rank is not updated when dependents are added after it was computed.
+ * Dependents on a cycle, which can never run, add nothing to the rank of the operation that closes the cycle.
+ *
+ * Execution times are estimated per operation type by an exponentially weighted moving average.
+ */
+class CriticalPathEstimator {
+    static final long DEFAULT_ESTIMATE = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // Weight of a new sample, as in the smoothed round trip time of TCP.
+    private static final double SAMPLE_WEIGHT = 0.125;
+
+    private final ConcurrentHashMap<String, Estimate> estimates = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the rank of the operation in nanoseconds. Uses the recorded estimates if weighted, and the default estimate otherwise.
+     */
+    long rank(Operation operation, boolean weighted) {
+        if (operation.criticalPathRank != 0) {
+            return operation.criticalPathRank;
+        }
+
+        // Iterative post-order walk, so long chains of dependents cannot overflow the stack.
+        // Operations expanded but not ranked yet are the path being walked, so reaching one of them again closes a cycle.
+        ArrayDeque<Operation> pending = new ArrayDeque<>();
+        Set<Operation> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+        pending.push(operation);
+        while (!pending.isEmpty()) {
+            Operation current = pending.peek();
+            if (current.criticalPathRank != 0) {
+                pending.pop();
+                continue;
+            }
+            expanded.add(current);
+
+            List<Operation> dependents = current.getSubscribers();
+            long longestDependent = 0;
+            boolean isRanked = true;
+            for (Operation dependent : dependents) {
+                if (dependent.criticalPathRank == 0 && !expanded.contains(dependent)) {
+                    pending.push(dependent);
+                    isRanked = false;
+                } else if (isRanked) {
+                    longestDependent = Math.max(longestDependent, dependent.criticalPathRank);
+                }
+            }
+
+            if (isRanked) {
+                current.criticalPathRank = (weighted ? estimate(current.getOperationType()) : DEFAULT_ESTIMATE) + longestDependent;
+                pending.pop();
+            }
+        }
+
+        return operation.criticalPathRank;
+    }
+
+    /**
+     * Returns the estimated execution time of the operation type in nanoseconds, or the default estimate if none was recorded.
+     */
+    long estimate(String operationType) {
+        Estimate estimate = estimates.get(operationType);
+        return estimate != null ? estimate.nanos : DEFAULT_ESTIMATE;
+    }
+
+    void setEstimate(String operationType, long nanos) {
+        estimates.computeIfAbsent(operationType, type -> new Estimate()).nanos = Math.max(nanos, 1);
+    }
+
+    void record(String operationType, long nanos) {
+        Estimate estimate = estimates.get(operationType);
+        if (estimate == null) {
+            estimate = estimates.putIfAbsent(operationType, new Estimate(nanos));
+            if (estimate == null) {
+                return;
+            }
+        }
+
+        // Racing updates may lose a sample, which an average does not need.
+        long current = estimate.nanos;
+        estimate.nanos = Math.max(current + (long) ((nanos - current) * SAMPLE_WEIGHT), 1);
+    }
+
+    private static final class Estimate {
+        private volatile long nanos;
+
+        private Estimate() {
+        }
+
+        private Estimate(long nanos) {
+            this.nanos = Math.max(nanos, 1);
+        }
+    }
+}
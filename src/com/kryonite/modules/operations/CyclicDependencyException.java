@@ -0,0 +1,40 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.Collections;
+
+/**
+ * Thrown when the operations submitted to a queue depend on each other in a cycle, as none of them could ever begin execution.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class CyclicDependencyException extends IllegalArgumentException {
+    private static final long serialVersionUID = 1L;
+
+    private final List<Operation> cycle;
+
+    CyclicDependencyException(List<Operation> cycle) {
+        super("Operations depend on each other in a cycle: " + describe(cycle));
+        this.cycle = Collections.unmodifiableList(cycle);
+    }
+
+    /**
+     * Returns the offending path, starting and ending with the same operation. Each operation is a dependency of the next one.
+     * @return
+     */
+    public List<Operation> getCycle() {
+        return cycle;
+    }
+
+    private static String describe(List<Operation> cycle) {
+        StringBuilder builder = new StringBuilder();
+        for (Operation operation : cycle) {
+            if (builder.length() > 0) {
+                builder.append(" -> ");
+            }
+            builder.append(operation.getOperationId());
+        }
+        return builder.toString();
+    }
+}
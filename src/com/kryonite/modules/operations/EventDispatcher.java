@@ -0,0 +1,214 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Delivers the lifecycle events of operations to their observers and completion handlers on a dedicated thread.
+ * Events are published to a preallocated ring buffer that many threads write to without locking, and the dispatcher thread
+ * drains it in batches. Events are delivered in the order they were published, so the events of an operation keep their order.
+ *
+ * Each slot carries a sequence number: a slot is free for position p once its sequence equals p,
+ * and holds the event of position p once its sequence equals p + 1.
+ */
+class EventDispatcher {
+    private static final int BATCH_SIZE = 256;
+    private static final long BLOCKED_PUBLISH_PARK_NANOS = 10000;
+    private static final Operation.OperationState[] STATES = Operation.OperationState.values();
+
+    private final int mask;
+    private final Operation[] operations;
+    private final byte[] states;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final EventOverflowPolicy overflowPolicy;
+    private final LongAdder droppedEvents = new LongAdder();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Thread dispatcherThread;
+
+    // Only advanced while holding the drain lock.
+    private long head = 0;
+    private volatile boolean isWaiting = false;
+    private volatile boolean isClosed = false;
+
+    /**
+     * Creates the dispatcher with a buffer of at least the specified size, rounded up to a power of two.
+     */
+    EventDispatcher(String name, int bufferSize, EventOverflowPolicy overflowPolicy) {
+        int capacity = Integer.highestOneBit(Math.max(bufferSize - 1, 1)) << 1;
+        this.mask = capacity - 1;
+        this.operations = new Operation[capacity];
+        this.states = new byte[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.overflowPolicy = overflowPolicy;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+
+        dispatcherThread = new Thread(this::runDispatcher, name + "-event-dispatcher");
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Publishes the event. Returns false, if the caller has to deliver the event itself,
+     * either because the dispatcher is closed or because the caller is the dispatcher thread and the buffer is full.
+     * In that case the events published before are delivered first, so the earlier events of the operation keep their order.
+     * An event dropped while the buffer is full still runs its completion handler on the caller.
+     */
+    boolean publish(Operation operation, Operation.OperationState state) {
+        if (isClosed) {
+            drainTo(tail.get());
+            return false;
+        }
+
+        long position;
+        while ((position = tryPublish(operation, state)) < 0) {
+            if (overflowPolicy == EventOverflowPolicy.DROP) {
+                // Only the observer callbacks are dropped. Callers may wait on a completion handler, so it runs here instead.
+                if (state != Operation.OperationState.STARTED) {
+                    operation.notifyCompletionHandler();
+                }
+                if (operation.hasObservers()) {
+                    droppedEvents.increment();
+                }
+                return true;
+            }
+            // An observer that completes another operation must not wait on its own thread.
+            if (Thread.currentThread() == dispatcherThread || isClosed) {
+                drainTo(tail.get());
+                return false;
+            }
+            LockSupport.parkNanos(this, BLOCKED_PUBLISH_PARK_NANOS);
+        }
+
+        if (isWaiting) {
+            LockSupport.unpark(dispatcherThread);
+        }
+        // The dispatcher may have drained for the last time before the event landed, so it is delivered here.
+        if (isClosed) {
+            drainTo(position + 1);
+        }
+        return true;
+    }
+
+    long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Stops the dispatcher once the events published so far have been delivered.
+     */
+    void close() {
+        isClosed = true;
+        LockSupport.unpark(dispatcherThread);
+        if (Thread.currentThread() != dispatcherThread) {
+            try {
+                dispatcherThread.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Publishes the event to the next free slot. Returns the position of the event, or -1 if the buffer is full.
+     */
+    private long tryPublish(Operation operation, Operation.OperationState state) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long difference = sequences.get(index) - position;
+            if (difference < 0) {
+                return -1;
+            }
+
+            if (difference == 0 && tail.compareAndSet(position, position + 1)) {
+                operations[index] = operation;
+                states[index] = (byte) state.ordinal();
+                sequences.set(index, position + 1);
+                return position;
+            }
+        }
+    }
+
+    private void runDispatcher() {
+        while (true) {
+            if (drain(BATCH_SIZE) > 0) {
+                continue;
+            }
+
+            if (isClosed) {
+                drain(Integer.MAX_VALUE);
+                return;
+            }
+
+            isWaiting = true;
+            if (!hasPublishedEvent()) {
+                LockSupport.park(this);
+            }
+            isWaiting = false;
+        }
+    }
+
+    /**
+     * Delivers up to the specified number of events. Returns the number delivered.
+     */
+    private int drain(int maxEvents) {
+        drainLock.lock();
+        try {
+            int delivered = 0;
+            while (delivered < maxEvents) {
+                int index = (int) (head & mask);
+                if (sequences.get(index) != head + 1) {
+                    break;
+                }
+
+                Operation operation = operations[index];
+                Operation.OperationState state = STATES[states[index]];
+                operations[index] = null;
+                sequences.set(index, head + mask + 1);
+                head++;
+                delivered++;
+
+                try {
+                    operation.deliverEvent(state);
+                } catch (Throwable throwable) {
+                    Thread currentThread = Thread.currentThread();
+                    currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, throwable);
+                }
+            }
+            return delivered;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Delivers every event published before the position, waiting for publishers that have claimed a slot but not filled it yet.
+     */
+    private void drainTo(long position) {
+        drainLock.lock();
+        try {
+            while (head < position) {
+                if (drain(1) == 0) {
+                    Thread.yield();
+                }
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    private boolean hasPublishedEvent() {
+        drainLock.lock();
+        try {
+            return sequences.get((int) (head & mask)) == head + 1;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Event overflow policy decides what happens to a lifecycle event published while the observer event buffer of a queue is full.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public enum EventOverflowPolicy {
+    /**
+     * Waits until the dispatcher frees a slot. No event is lost, at the cost of slowing the operations down to the pace of the observers.
+     */
+    BLOCK,
+
+    /**
+     * Drops the observer callbacks of the event. The operations never wait on the observers, and the dropped events are counted.
+     * Completion handlers are never dropped: when the buffer is full, they run on the thread that completed the operation,
+     * possibly before the observers of the operation have received its earlier events.
+     */
+    DROP
+}
@@ -0,0 +1,29 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Execution mode decides which threads an operation queue runs its operations on.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public enum ExecutionMode {
+    /**
+     * Operations run on a fixed pool of platform threads, one thread per concurrent operation.
+     */
+    FIXED_THREAD_POOL,
+
+    /**
+     * Every operation runs on its own virtual thread, and the concurrency limit is enforced by dispatch permits.
+     * Suited for operations that block on I/O. Requires Java 21 or later.
+     * NOTE: Virtual threads are daemon threads and do not keep the JVM alive.
+     */
+    VIRTUAL_THREADS,
+
+    /**
+     * Operations run on a work-stealing pool. A dependent made ready by an operation runs next on the same worker,
+     * up to a depth bound, and further dependents are pushed to that worker's local deque, where idle workers steal them.
+     * Continuations skip the priority ordering of the queue.
+     * NOTE: Work-stealing workers are daemon threads and do not keep the JVM alive.
+     */
+    WORK_STEALING
+}
@@ -0,0 +1,17 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Graph node factory creates the operation of a node of a graph template for each run of the template.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public abstract class GraphNodeFactory<I> {
+    /**
+     * Returns a new operation for the node, for the run with the input.
+     * The dependencies declared in the template are wired by the template and must not be added here.
+     * @param input
+     * @return
+     */
+    protected abstract Operation create(I input);
+}
@@ -0,0 +1,69 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Graph run holds the operations of a single run of a graph template, indexed by the nodes of the template.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class GraphRun {
+    private final GraphTemplate.Compiled compiled;
+    private final Operation[] operations;
+
+    GraphRun(GraphTemplate.Compiled compiled, Operation[] operations) {
+        this.compiled = compiled;
+        this.operations = operations;
+    }
+
+    /**
+     * Returns the operation of the node.
+     * @param node
+     * @return
+     */
+    public Operation getOperation(int node) {
+        return operations[node];
+    }
+
+    /**
+     * Returns the operations of the run in node order.
+     * @return
+     */
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(Arrays.asList(operations));
+    }
+
+    /**
+     * Returns the number of operations in the run.
+     * @return
+     */
+    public int size() {
+        return operations.length;
+    }
+
+    /**
+     * Returns the operations of the nodes without dependencies in the template.
+     */
+    List<Operation> getRootOperations() {
+        Operation[] roots = new Operation[compiled.roots.length];
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = operations[compiled.roots[i]];
+        }
+        return Arrays.asList(roots);
+    }
+
+    int getDependentsStart(int node) {
+        return compiled.dependentOffsets[node];
+    }
+
+    int getDependentsEnd(int node) {
+        return compiled.dependentOffsets[node + 1];
+    }
+
+    Operation getDependent(int index) {
+        return operations[compiled.dependents[index]];
+    }
+}
@@ -0,0 +1,151 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.ArrayList;
+
+/**
+ * Graph template defines the shape of a dependency graph once, for graphs that are run over and over with different inputs.
+ * Nodes are added along with the nodes they depend on, which must have been added before, so a template can never contain a cycle.
+ *
+ * On first use, the template is compiled into arrays: the in-degree of every node, the dependents of every node in compressed sparse rows,
+ * and the nodes without dependencies. A run then only creates the operations. Their dependency counts are set straight from the in-degrees,
+ * their dependents are read from the shared rows instead of subscriber stacks, and the queue skips validating the graph
+ * and only checks the root nodes for readiness.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class GraphTemplate<I> {
+    private final List<GraphNodeFactory<I>> nodeFactories = new ArrayList<>();
+    private final List<int[]> nodeDependencies = new ArrayList<>();
+    private volatile Compiled compiled = null;
+
+    /**
+     * Adds a node that depends on the specified nodes, and returns its index.
+     * @param nodeFactory - Creates the operation of the node for each run.
+     * @param dependencies - Indexes of the nodes this node depends on.
+     * @return
+     * @throws IllegalArgumentException - If a dependency is not a node added before.
+     * @throws IllegalStateException - If the template has already been compiled.
+     */
+    public synchronized int addNode(GraphNodeFactory<I> nodeFactory, int... dependencies) {
+        if (compiled != null) {
+            throw new IllegalStateException("Nodes cannot be added to a compiled graph template.");
+        }
+
+        int node = nodeFactories.size();
+        for (int dependency : dependencies) {
+            if (dependency < 0 || dependency >= node) {
+                throw new IllegalArgumentException("Node " + node + " can only depend on nodes added before it, not on " + dependency + ".");
+            }
+        }
+
+        nodeFactories.add(nodeFactory);
+        nodeDependencies.add(dependencies.clone());
+        return node;
+    }
+
+    /**
+     * Returns the number of nodes in the template.
+     * @return
+     */
+    public synchronized int getNodeCount() {
+        return nodeFactories.size();
+    }
+
+    /**
+     * Compiles the template, after which no more nodes can be added. Called by the first run, if not called before.
+     */
+    public void compile() {
+        getCompiled();
+    }
+
+    /**
+     * Creates the operations of a run of the template with the input, wired as the template defines.
+     * The run is submitted with OperationQueue.addGraphRun(). Dependencies on operations outside the run can be added in between.
+     * @param input
+     * @return
+     * @throws IllegalStateException - If a node factory returns an operation that is part of another run or queue.
+     */
+    @SuppressWarnings("unchecked")
+    public GraphRun instantiate(I input) {
+        Compiled compiled = getCompiled();
+        Operation[] operations = new Operation[compiled.nodeFactories.length];
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = ((GraphNodeFactory<I>) compiled.nodeFactories[i]).create(input);
+            if (operations[i].graphRun != null || operations[i].getOperationQueue() != null) {
+                throw new IllegalStateException("The factory of node " + i + " returned an operation that is already in use.");
+            }
+        }
+
+        GraphRun graphRun = new GraphRun(compiled, operations);
+        for (int i = 0; i < operations.length; i++) {
+            operations[i].joinGraphRun(graphRun, i, compiled.inDegrees[i]);
+        }
+        return graphRun;
+    }
+
+    private Compiled getCompiled() {
+        Compiled compiled = this.compiled;
+        if (compiled != null) {
+            return compiled;
+        }
+
+        synchronized (this) {
+            if (this.compiled == null) {
+                this.compiled = new Compiled(nodeFactories, nodeDependencies);
+            }
+            return this.compiled;
+        }
+    }
+
+    /**
+     * The compiled form of a template, shared by all of its runs.
+     */
+    static final class Compiled {
+        final GraphNodeFactory<?>[] nodeFactories;
+        final int[] inDegrees;
+        final int[] dependentOffsets;
+        final int[] dependents;
+        final int[] roots;
+
+        private Compiled(List<? extends GraphNodeFactory<?>> nodeFactories, List<int[]> nodeDependencies) {
+            int nodeCount = nodeFactories.size();
+            this.nodeFactories = nodeFactories.toArray(new GraphNodeFactory<?>[0]);
+            this.inDegrees = new int[nodeCount];
+            this.dependentOffsets = new int[nodeCount + 1];
+
+            int edgeCount = 0;
+            int rootCount = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                int[] dependencies = nodeDependencies.get(node);
+                inDegrees[node] = dependencies.length;
+                edgeCount += dependencies.length;
+                if (dependencies.length == 0) {
+                    rootCount++;
+                }
+                for (int dependency : dependencies) {
+                    dependentOffsets[dependency + 1]++;
+                }
+            }
+
+            for (int node = 0; node < nodeCount; node++) {
+                dependentOffsets[node + 1] += dependentOffsets[node];
+            }
+
+            this.dependents = new int[edgeCount];
+            this.roots = new int[rootCount];
+            int[] nextSlot = dependentOffsets.clone();
+            rootCount = 0;
+            for (int node = 0; node < nodeCount; node++) {
+                int[] dependencies = nodeDependencies.get(node);
+                if (dependencies.length == 0) {
+                    roots[rootCount++] = node;
+                }
+                for (int dependency : dependencies) {
+                    dependents[nextSlot[dependency]++] = node;
+                }
+            }
+        }
+    }
+}
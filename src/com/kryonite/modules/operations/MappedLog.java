@@ -0,0 +1,177 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.StandardOpenOption;
+import java.nio.channels.FileChannel;
+
+/**
+ * An append-only log of checksummed records backed by a memory-mapped file.
+ * The file is mapped in fixed size chunks and a record never spans two chunks.
+ * Writes land in the page cache and only become durable once the log is forced, which lets many records share a single force.
+ *
+ * Record layout: [int length][byte type][body][int crc32 of type and body]. A zero length marks the end of the log
+ * and a length of -1 marks the unused tail of a chunk.
+ */
+class MappedLog {
+    private static final int HEADER_SIZE = 4 + 1;
+    private static final int TRAILER_SIZE = 4;
+    private static final int CHUNK_END = -1;
+
+    private final FileChannel channel;
+    private final int chunkSize;
+    private final List<MappedByteBuffer> chunks = new ArrayList<>();
+    private final List<MappedByteBuffer> dirtyChunks = new ArrayList<>();
+    private final CRC32 crc = new CRC32();
+
+    private long writePosition = 0;
+
+    /**
+     * Opens the log, creating the file if needed. The existing records are handed to the reader,
+     * and appends continue right after the last intact record.
+     */
+    MappedLog(Path file, int chunkSize, RecordReader reader) throws IOException {
+        this.chunkSize = chunkSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        long fileSize = channel.size();
+        int chunkCount = (int) Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
+        for (int i = 0; i < chunkCount; i++) {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) i * chunkSize, chunkSize));
+        }
+
+        replay(reader);
+    }
+
+    /**
+     * Appends a record. Callers are expected to serialize appends.
+     * @return - Position of the log after the record.
+     */
+    long append(byte type, ByteBuffer body) throws IOException {
+        int bodySize = body.remaining();
+        int recordSize = HEADER_SIZE + bodySize + TRAILER_SIZE;
+        if (recordSize + 4 > chunkSize) {
+            throw new IllegalArgumentException("Record of " + recordSize + " bytes does not fit a log chunk of " + chunkSize + " bytes.");
+        }
+
+        int offset = (int) (writePosition % chunkSize);
+        if (offset + recordSize + 4 > chunkSize) {
+            // Marks the rest of the chunk as unused and continues in the next one.
+            currentChunk().putInt(offset, CHUNK_END);
+            writePosition += chunkSize - offset;
+            offset = 0;
+        }
+
+        MappedByteBuffer chunk = currentChunk();
+        crc.reset();
+        crc.update(type);
+        crc.update(body.duplicate());
+
+        chunk.put(offset + 4, type);
+        ByteBuffer target = chunk.duplicate();
+        target.position(offset + HEADER_SIZE);
+        target.put(body);
+        chunk.putInt(offset + HEADER_SIZE + bodySize, (int) crc.getValue());
+        // The length is written last, so a torn record reads as the end of the log.
+        chunk.putInt(offset, bodySize);
+
+        if (!dirtyChunks.contains(chunk)) {
+            dirtyChunks.add(chunk);
+        }
+        writePosition += recordSize;
+        return writePosition;
+    }
+
+    /**
+     * Returns the chunks written since the last call. Forcing them makes every record appended so far durable.
+     */
+    List<MappedByteBuffer> takeDirtyChunks() {
+        List<MappedByteBuffer> taken = new ArrayList<>(dirtyChunks);
+        dirtyChunks.clear();
+        return taken;
+    }
+
+    long getWritePosition() {
+        return writePosition;
+    }
+
+    void close() throws IOException {
+        for (MappedByteBuffer chunk : takeDirtyChunks()) {
+            chunk.force();
+        }
+        channel.close();
+    }
+
+    private MappedByteBuffer currentChunk() throws IOException {
+        int index = (int) (writePosition / chunkSize);
+        while (chunks.size() <= index) {
+            chunks.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) chunks.size() * chunkSize, chunkSize));
+        }
+        return chunks.get(index);
+    }
+
+    private void replay(RecordReader reader) throws IOException {
+        while (true) {
+            int chunkIndex = (int) (writePosition / chunkSize);
+            if (chunkIndex >= chunks.size()) {
+                return;
+            }
+
+            MappedByteBuffer chunk = chunks.get(chunkIndex);
+            int offset = (int) (writePosition % chunkSize);
+            int bodySize = offset + 4 <= chunkSize ? chunk.getInt(offset) : CHUNK_END;
+
+            if (bodySize == CHUNK_END) {
+                writePosition += chunkSize - offset;
+                continue;
+            }
+
+            if (bodySize <= 0 || offset + HEADER_SIZE + bodySize + TRAILER_SIZE > chunkSize || !hasValidChecksum(chunk, offset, bodySize)) {
+                clearTail(chunk, offset);
+                return;
+            }
+
+            ByteBuffer body = chunk.duplicate();
+            body.position(offset + HEADER_SIZE);
+            body.limit(offset + HEADER_SIZE + bodySize);
+            reader.read(chunk.get(offset + 4), body.slice());
+            writePosition += HEADER_SIZE + bodySize + TRAILER_SIZE;
+        }
+    }
+
+    private boolean hasValidChecksum(MappedByteBuffer chunk, int offset, int bodySize) {
+        ByteBuffer body = chunk.duplicate();
+        body.position(offset + HEADER_SIZE);
+        body.limit(offset + HEADER_SIZE + bodySize);
+
+        crc.reset();
+        crc.update(chunk.get(offset + 4));
+        crc.update(body);
+        return (int) crc.getValue() == chunk.getInt(offset + HEADER_SIZE + bodySize);
+    }
+
+    // Zeroes whatever a crash left behind the last intact record, so new records are never followed by stale bytes.
+    private void clearTail(MappedByteBuffer chunk, int offset) {
+        for (int i = offset; i < chunkSize; i++) {
+            chunk.put(i, (byte) 0);
+        }
+        chunk.force();
+
+        for (int i = chunks.indexOf(chunk) + 1; i < chunks.size(); i++) {
+            MappedByteBuffer next = chunks.get(i);
+            for (int j = 0; j < chunkSize; j++) {
+                next.put(j, (byte) 0);
+            }
+            next.force();
+        }
+    }
+
+    interface RecordReader {
+        void read(byte type, ByteBuffer body);
+    }
+}
@@ -3,30 +3,104 @@ package com.kryonite.modules.operations;
 import java.util.List;
 import java.util.UUID;
 import java.util.ArrayList;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Operation represents a single executable unit.
+ * The lifecycle flags of the operation share a single atomic state word, and its collections are only allocated once used,
+ * so that creating millions of small operations stays cheap.
+ * Completion is propagated to dependents through a work list rather than recursion, and no monitor is held while it spreads,
+ * so cancelling the head of a chain of any length neither overflows the stack nor blocks other threads on the chain.
  *
  * @author  Vaibhav Dwivedi
  * @version 1.0
  */
 public abstract class Operation implements Runnable {
-    private AtomicBoolean isExecuting = new AtomicBoolean(false);
-    private AtomicBoolean isFinished = new AtomicBoolean(false);
-    private AtomicBoolean isCancelled = new AtomicBoolean(false);
-    private AtomicBoolean isAborted = new AtomicBoolean(false);
-    private AtomicBoolean canProceedWhenDependenciesAborted = new AtomicBoolean(false);
-    private OperationQueue operationQueue;
-    private Future operationFuture = null;
+    private volatile int state = 0;
+    private volatile int pendingDependencies = 0;
+    private volatile OperationQueue operationQueue;
+    private volatile SubscriberStack subscriberStack = null;
+    private volatile SubscriberStack startSubscriberStack = null;
+    private volatile String operationId = null;
+    private Thread executingThread = null;
+    private QueuePriority queuePriority = QueuePriority.NORMAL;
     private CompletionHandler completionHandler = null;
-    private OperationList dependencyList = new OperationList();
-    private OperationList subscriberList = new OperationList();
-    private List<OperationCondition> conditionList = new ArrayList<>();
-    private List<OperationObserver> observerList = new ArrayList<>();
+    private List<OperationCondition> conditionList = null;
+    private List<OperationObserver> observerList = null;
+    private List<OperationChannel<?>> channelList = null;
+    private String journalFactoryName = null;
+    private byte[] journalPayload = null;
+    private Object deduplicationKey = null;
+    private String batchType = null;
+    private RetryPolicy retryPolicy = null;
+    private String operationType = null;
+    private ResourceGroup resourceGroup = null;
+    private boolean usesResourceExclusively = false;
+    private volatile int attemptCount = 0;
 
-    private final String operationId = UUID.randomUUID().toString();
+    private final long numericId = ID_SEQUENCE.incrementAndGet();
+
+    private static final int EXECUTING = 1;
+    private static final int FINISHED = 1 << 1;
+    private static final int ABORTED = 1 << 2;
+    private static final int CANCELLED = 1 << 3;
+    private static final int DISPATCHED = 1 << 4;
+    private static final int PROCEEDS_WHEN_DEPENDENCIES_ABORTED = 1 << 5;
+    private static final int JOURNALED = 1 << 6;
+    private static final int IN_FLIGHT = 1 << 7;
+    private static final int ASYNC_CONDITIONS_MET = 1 << 8;
+    private static final int RETRY_PENDING = 1 << 9;
+    private static final int HOLDS_RESOURCE = 1 << 10;
+    private static final int STREAMING = 1 << 11;
+
+    private static final AtomicLong ID_SEQUENCE = new AtomicLong(0);
+    private static final AtomicIntegerFieldUpdater<Operation> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Operation.class, "state");
+    private static final AtomicIntegerFieldUpdater<Operation> ATTEMPT_COUNT =
+            AtomicIntegerFieldUpdater.newUpdater(Operation.class, "attemptCount");
+    private static final AtomicIntegerFieldUpdater<Operation> PENDING_DEPENDENCIES =
+            AtomicIntegerFieldUpdater.newUpdater(Operation.class, "pendingDependencies");
+    private static final AtomicReferenceFieldUpdater<Operation, SubscriberStack> SUBSCRIBER_STACK =
+            AtomicReferenceFieldUpdater.newUpdater(Operation.class, SubscriberStack.class, "subscriberStack");
+    private static final AtomicReferenceFieldUpdater<Operation, SubscriberStack> START_SUBSCRIBER_STACK =
+            AtomicReferenceFieldUpdater.newUpdater(Operation.class, SubscriberStack.class, "startSubscriberStack");
+    private static final AtomicReferenceFieldUpdater<Operation, String> OPERATION_ID =
+            AtomicReferenceFieldUpdater.newUpdater(Operation.class, String.class, "operationId");
+    private static final AtomicReferenceFieldUpdater<Operation, BatchStage.BatchOperation> BATCH =
+            AtomicReferenceFieldUpdater.newUpdater(Operation.class, BatchStage.BatchOperation.class, "batch");
+
+    // Ordering of the operation in the ready queue, assigned by the queue when the operation becomes ready.
+    long dispatchKey;
+    long dispatchSequence;
+
+    // Length of the longest estimated path from the operation to the end of its graph, computed when the queue schedules by the graph.
+    long criticalPathRank;
+
+    // Start of the latest execution, recorded only while the queue estimates execution times.
+    long executionStartedAt;
+
+    // Lifecycle timestamps, recorded only while the metrics of the queue are enabled.
+    long addedAt;
+    long readyAt;
+    long startedAt;
+
+    // Identifier of the operation in the journal of its queue, assigned when first journaled.
+    long journalId;
+
+    // Run of a graph template the operation belongs to, whose compiled rows list its dependents within the run.
+    GraphRun graphRun;
+    int graphNode;
+
+    // Batch the operation runs in, held until the operation completes so the batch keeps its in-flight permit until then.
+    private volatile BatchStage.BatchOperation batch;
+
+    // Scratch state used by the queue while validating a submitted graph.
+    long graphStamp;
+    int graphInDegree;
 
     protected abstract void execute();
 
@@ -37,19 +111,39 @@ public abstract class Operation implements Runnable {
     @Override
     @Deprecated
     public void run() {
-        notifyObservers(OperationState.STARTED);
+        runAttempt();
+    }
 
-        if (isCancelled.get() || !meetsAllConditions()) {
-            cancel();
-            return;
+    /**
+     * Runs one attempt of the operation. The queue dispatches operations through this method.
+     */
+    void runAttempt() {
+        synchronized (this) {
+            executingThread = Thread.currentThread();
         }
 
-        isExecuting.set(true);
-        execute();
-        isExecuting.set(false);
-
-        if (operationQueue != null && operationQueue.shouldAutoFinishOperationsOnCompletion() && !isFinished()) {
-            finish();
+        OperationEvents.Execution event = OperationEvents.beginExecution();
+        try {
+            if (beginExecution()) {
+                boolean succeeded = true;
+                if (retryPolicy == null) {
+                    execute();
+                } else {
+                    try {
+                        execute();
+                    } catch (RuntimeException exception) {
+                        succeeded = false;
+                    }
+                }
+                endExecution(succeeded);
+            }
+        } finally {
+            synchronized (this) {
+                executingThread = null;
+            }
+            OperationEvents.endExecution(event, this);
+            // Clears an interrupt raised by cancel(), so it does not leak into the next task of the worker thread.
+            Thread.interrupted();
         }
     }
 
@@ -62,8 +156,17 @@ public abstract class Operation implements Runnable {
             return;
         }
 
-        dependencyList.addOperation(operation);
-        operation.addSubscriber(this);
+        PENDING_DEPENDENCIES.incrementAndGet(this);
+        if (!operation.addSubscriber(this)) {
+            // The dependency has already completed, so it will never notify this operation.
+            notifyDependencyComplete(operation);
+            return;
+        }
+
+        OperationQueue dependencyQueue = operation.operationQueue;
+        if (dependencyQueue != null) {
+            dependencyQueue.journalDependency(this, operation);
+        }
     }
 
     /**
@@ -85,8 +188,9 @@ public abstract class Operation implements Runnable {
             return;
         }
 
-        dependencyList.removeOperation(operation);
-        operation.removeSubscriber(operation);
+        if (operation.removeSubscriber(this)) {
+            onDependencyResolved();
+        }
     }
 
     /**
@@ -104,7 +208,7 @@ public abstract class Operation implements Runnable {
      * @return
      */
     public boolean isExecuting() {
-        return isExecuting.get();
+        return hasFlag(EXECUTING);
     }
 
     /**
@@ -112,7 +216,7 @@ public abstract class Operation implements Runnable {
      * @return
      */
     public boolean isFinished() {
-        return isFinished.get();
+        return hasFlag(FINISHED);
     }
 
     /**
@@ -120,15 +224,28 @@ public abstract class Operation implements Runnable {
      * @return
      */
     public boolean isAborted() {
-        return isAborted.get() || isCancelled.get();
+        return (state & (ABORTED | CANCELLED)) != 0;
     }
 
     /**
-     * Returns the unique ID for the operation.
+     * Returns the unique ID for the operation. The ID is generated on the first call.
      * @return
      */
     public String getOperationId() {
-        return operationId;
+        String id = operationId;
+        if (id == null) {
+            OPERATION_ID.compareAndSet(this, null, UUID.randomUUID().toString());
+            id = operationId;
+        }
+        return id;
+    }
+
+    /**
+     * Returns the numeric ID for the operation, unique within the process and assigned in creation order.
+     * @return
+     */
+    public long getNumericId() {
+        return numericId;
     }
 
     /**
@@ -136,57 +253,115 @@ public abstract class Operation implements Runnable {
      * @param canProceedWhenDependenciesAborted
      */
     public void canProceedWhenDependenciesAborted(boolean canProceedWhenDependenciesAborted) {
-        this.canProceedWhenDependenciesAborted.set(canProceedWhenDependenciesAborted);
+        if (canProceedWhenDependenciesAborted) {
+            setFlag(PROCEEDS_WHEN_DEPENDENCIES_ABORTED);
+        } else {
+            clearFlag(PROCEEDS_WHEN_DEPENDENCIES_ABORTED);
+        }
+    }
+
+    /**
+     * Sets the priority used by the queue to order this operation among the other ready operations.
+     * @param queuePriority
+     */
+    public void setQueuePriority(QueuePriority queuePriority) {
+        this.queuePriority = queuePriority;
+    }
+
+    /**
+     * Returns the priority of the operation in the queue.
+     * @return
+     */
+    public QueuePriority getQueuePriority() {
+        return queuePriority;
     }
 
     /**
      * Cancels the execution of the operation.
      * NOTE: If the operation has begun execution, it might take a while to completely stop execution.
      */
-    public synchronized void cancel() {
-        if (operationFuture != null) {
-            operationFuture.cancel(true);
+    public void cancel() {
+        if (markCancelled()) {
+            complete(OperationState.ABORTED);
         }
-
-        if (!isAborted()) {
-            abort();
-        }
-
-        isCancelled.set(true);
     }
 
     /**
      * Finishes the operation and removes it from the queue and notifies other operations that depend on it.
      */
-    public synchronized void finish() {
-        if (isAborted() || isFinished()) {
-            return;
+    public void finish() {
+        if (transition(FINISHED, FINISHED | ABORTED | CANCELLED)) {
+            OperationEvents.completed(this, "FINISHED");
+            complete(OperationState.FINISHED);
         }
+    }
 
-        isFinished.set(true);
-        if (operationQueue != null) {
-            operationQueue.notifyOperationComplete(this);
+    /**
+     * Aborts the operation and removes it from the queue and notifies other operations that depend on it.
+     */
+    public void abort() {
+        if (transition(ABORTED, FINISHED | ABORTED | CANCELLED)) {
+            OperationEvents.completed(this, "ABORTED");
+            complete(OperationState.ABORTED);
         }
-        notifySubscribers();
-        notifyObservers(OperationState.FINISHED);
-        notifyCompletionHandler();
     }
 
     /**
-     * Aborts the operation and removes it from the queue and notifies other operations that depend on it.
+     * Fails the current attempt of the operation. If its retry policy allows another attempt, the operation is executed again once the backoff has elapsed,
+     * without holding a thread in the meantime. Otherwise it is aborted. Dependents only see the outcome of the last attempt.
+     * With a retry policy, a runtime exception thrown from execute() fails the attempt as well.
+     * The retry is scheduled once the failed attempt has returned from execute(), so attempts never overlap.
+     * NOTE: Only operations in a queue are retried.
      */
-    public synchronized void abort() {
-        if (isFinished() || isAborted()) {
+    public void fail() {
+        RetryPolicy policy = retryPolicy;
+        OperationQueue queue = operationQueue;
+        if (policy == null || queue == null || hasFlag(CANCELLED) || attemptCount >= policy.getMaxAttempts()) {
+            clearFlag(EXECUTING);
+            abort();
             return;
         }
 
-        isAborted.set(true);
-        if (operationQueue != null) {
-            operationQueue.notifyOperationComplete(this);
+        int previous;
+        do {
+            previous = state;
+            if ((previous & (FINISHED | ABORTED | RETRY_PENDING)) != 0) {
+                return;
+            }
+        } while (!STATE.compareAndSet(this, previous, previous | RETRY_PENDING));
+
+        OperationQueueMetrics metrics = getQueueMetrics();
+        if (metrics != null) {
+            metrics.operationRetried(this);
         }
-        notifySubscribers();
-        notifyObservers(OperationState.ABORTED);
-        notifyCompletionHandler();
+        // While the attempt is still executing, endExecution schedules the retry once it returns.
+        if ((previous & EXECUTING) == 0) {
+            queue.scheduleRetry(this, policy.getBackoff(attemptCount));
+        }
+    }
+
+    /**
+     * Sets the retry policy applied when an attempt of the operation fails.
+     * @param retryPolicy
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Returns the retry policy of the operation, or null if failed attempts are not retried.
+     * @return
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Returns the number of times the operation has begun execution.
+     * @return
+     */
+    public int getAttemptCount() {
+        return attemptCount;
     }
 
     /**
@@ -194,6 +369,9 @@ public abstract class Operation implements Runnable {
      * @param operationCondition
      */
     public void addCondition(OperationCondition operationCondition) {
+        if (conditionList == null) {
+            conditionList = new ArrayList<>(2);
+        }
         conditionList.add(operationCondition);
         operationCondition.setOperation(this);
     }
@@ -213,6 +391,9 @@ public abstract class Operation implements Runnable {
      * @param operationObserver
      */
     public void addObserver(OperationObserver operationObserver) {
+        if (observerList == null) {
+            observerList = new ArrayList<>(2);
+        }
         observerList.add(operationObserver);
         operationObserver.setOperation(this);
     }
@@ -227,6 +408,104 @@ public abstract class Operation implements Runnable {
         }
     }
 
+    /**
+     * Sets the entry used to journal the operation when it is added to a queue with a journal.
+     * After a crash, the queue rebuilds the operation by passing the payload to the factory registered under the name.
+     * @param factoryName
+     * @param payload
+     */
+    public void setJournalEntry(String factoryName, byte[] payload) {
+        this.journalFactoryName = factoryName;
+        this.journalPayload = payload;
+    }
+
+    /**
+     * Sets the key that identifies what the operation computes. While an operation with an equal key is in flight in the same queue,
+     * this one attaches to that operation once its own dependencies are met instead of running again, and it completes along with that operation.
+     * @param deduplicationKey - Key with value based equals and hashCode, or null to always run the operation.
+     */
+    public void setDeduplicationKey(Object deduplicationKey) {
+        this.deduplicationKey = deduplicationKey;
+    }
+
+    /**
+     * Returns the deduplication key of the operation, or null if it has none.
+     * @return
+     */
+    public Object getDeduplicationKey() {
+        return deduplicationKey;
+    }
+
+    /**
+     * Opts the operation into batching. Once ready, it is executed along with other operations of the same type
+     * by the batch executor registered for the type on its queue, instead of through execute().
+     * Operations whose type has no registered batch executor are executed on their own.
+     * @param batchType
+     */
+    public void setBatchType(String batchType) {
+        this.batchType = batchType;
+    }
+
+    /**
+     * Returns the batch type of the operation, or null if it is not batched.
+     * @return
+     */
+    public String getBatchType() {
+        return batchType;
+    }
+
+    /**
+     * Sets the type the queue records the execution times of the operation under, to estimate the critical path of graphs.
+     * Defaults to the class name of the operation.
+     * @param operationType
+     */
+    public void setOperationType(String operationType) {
+        this.operationType = operationType;
+    }
+
+    /**
+     * Returns the type the execution times of the operation are recorded under.
+     * @return
+     */
+    public String getOperationType() {
+        return operationType != null ? operationType : getClass().getName();
+    }
+
+    /**
+     * Declares that the operation uses the resource of the group, alongside other shared users up to the limit of the group.
+     * The operation is only dispatched once it has acquired the group.
+     * @param resourceGroup
+     */
+    public void setResourceGroup(ResourceGroup resourceGroup) {
+        setResourceGroup(resourceGroup, false);
+    }
+
+    /**
+     * Declares that the operation uses the resource of the group, exclusively if specified.
+     * @param resourceGroup
+     * @param isExclusive - If true, no other operation uses the resource while this operation does.
+     */
+    public void setResourceGroup(ResourceGroup resourceGroup, boolean isExclusive) {
+        this.resourceGroup = resourceGroup;
+        this.usesResourceExclusively = isExclusive;
+    }
+
+    /**
+     * Returns the resource group the operation uses, or null if it uses none.
+     * @return
+     */
+    public ResourceGroup getResourceGroup() {
+        return resourceGroup;
+    }
+
+    /**
+     * Returns true, if the operation uses its resource group exclusively.
+     * @return
+     */
+    public boolean usesResourceExclusively() {
+        return usesResourceExclusively;
+    }
+
     /**
      * Sets the completion handler for the operation.
      * @param completionHandler
@@ -235,41 +514,499 @@ public abstract class Operation implements Runnable {
         this.completionHandler = completionHandler;
     }
 
-    void setOperationFuture(Future operationFuture) {
-        this.operationFuture = operationFuture;
+    boolean hasObservers() {
+        return observerList != null;
+    }
+
+    /**
+     * Called once the operation has finished or aborted and every listener has been notified.
+     */
+    void operationDidComplete() {
+    }
+
+    void joinBatch(BatchStage.BatchOperation batch) {
+        this.batch = batch;
+    }
+
+    /**
+     * Detaches the operation from its batch. Only the first caller gets the batch, so the batch hears of each member once.
+     * @return
+     */
+    BatchStage.BatchOperation leaveBatch() {
+        BatchStage.BatchOperation memberOf = batch;
+        return memberOf != null && BATCH.compareAndSet(this, memberOf, null) ? memberOf : null;
+    }
+
+    String getJournalFactoryName() {
+        return journalFactoryName;
+    }
+
+    byte[] getJournalPayload() {
+        return journalPayload;
+    }
+
+    /**
+     * Marks the operation as registered in a journal. Returns true only for the first caller.
+     */
+    boolean markJournaled() {
+        return setFlag(JOURNALED);
+    }
+
+    boolean isJournaled() {
+        return hasFlag(JOURNALED);
+    }
+
+    /**
+     * Records the thread executing the operation on its behalf, as a batch does for its members, so cancelling the operation interrupts it.
+     */
+    synchronized void setExecutingThread(Thread executingThread) {
+        this.executingThread = executingThread;
+    }
+
+    /**
+     * Tells the observers that the failed attempt has returned and a retry is scheduled.
+     */
+    synchronized void notifyAttemptFailed() {
+        if (observerList == null) {
+            return;
+        }
+
+        for (OperationObserver operationObserver : observerList) {
+            operationObserver.attemptDidFail();
+        }
     }
 
     void setOperationQueue(OperationQueue operationQueue) {
         this.operationQueue = operationQueue;
     }
 
-    synchronized boolean hasUnfinishedDependencies() {
-        return !dependencyList.isEmpty();
+    OperationQueue getOperationQueue() {
+        return operationQueue;
     }
 
-    void addSubscriber(Operation operation) {
-        subscriberList.addOperation(operation);
+    /**
+     * Notifies the start of the execution and checks the cancellation and the conditions.
+     * Returns false, if the operation has been cancelled instead and must not execute.
+     * An operation cancelled after it was dispatched has already completed, so no start is recorded for it.
+     */
+    boolean beginExecution() {
+        if (isCompleted()) {
+            return false;
+        }
+
+        ATTEMPT_COUNT.incrementAndGet(this);
+        OperationQueueMetrics metrics = getQueueMetrics();
+        if (metrics != null) {
+            metrics.operationStarted(this);
+        }
+
+        notifyListeners(OperationState.STARTED);
+
+        if (hasFlag(CANCELLED) || !meetsAllConditions()) {
+            cancel();
+            return false;
+        }
+
+        if (operationQueue != null && operationQueue.getSchedulingPolicy() == SchedulingPolicy.CRITICAL_PATH) {
+            executionStartedAt = System.nanoTime();
+        }
+
+        setFlag(EXECUTING);
+        releaseStartSubscribers();
+        return true;
     }
 
-    void removeSubscriber(Operation operation) {
-        subscriberList.removeOperation(operation);
+    /**
+     * Ends the execution. A successful execution is finished if the queue auto finishes operations, a failed one fails the attempt.
+     * An attempt that failed while it was executing schedules its retry here.
+     */
+    void endExecution(boolean succeeded) {
+        if (!succeeded) {
+            fail();
+        }
+
+        int previous;
+        do {
+            previous = state;
+        } while (!STATE.compareAndSet(this, previous, previous & ~EXECUTING));
+
+        if ((previous & RETRY_PENDING) != 0) {
+            if ((previous & EXECUTING) != 0) {
+                operationQueue.scheduleRetry(this, retryPolicy.getBackoff(attemptCount));
+            }
+            return;
+        }
+        if (operationQueue != null && operationQueue.shouldAutoFinishOperationsOnCompletion() && !isFinished()) {
+            finish();
+        }
+    }
+
+    boolean hasUnfinishedDependencies() {
+        return pendingDependencies > 0;
+    }
+
+    /**
+     * Marks the operation as handed to the executor. Returns true only for the first caller.
+     */
+    boolean markDispatched() {
+        return setFlag(DISPATCHED);
+    }
+
+    /**
+     * Evaluates the asynchronous conditions of the operation, combined into a single result.
+     * Returns null, if the operation has no asynchronous conditions, they have already been met or the operation has completed.
+     */
+    CompletableFuture<Boolean> evaluateAsyncConditions() {
+        if (conditionList == null || (state & (ASYNC_CONDITIONS_MET | FINISHED | ABORTED)) != 0) {
+            return null;
+        }
+
+        CompletableFuture<Boolean> result = null;
+        for (OperationCondition condition : conditionList) {
+            if (condition instanceof AsyncOperationCondition) {
+                CompletableFuture<Boolean> evaluation = ((AsyncOperationCondition) condition).evaluateShared();
+                result = result == null ? evaluation : result.thenCombine(evaluation, (first, second) -> first && second);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears the pending retry before the next attempt is dispatched. Returns false, if no retry was pending.
+     */
+    boolean clearRetryPending() {
+        return clearFlag(RETRY_PENDING);
+    }
+
+    void markAsyncConditionsMet() {
+        setFlag(ASYNC_CONDITIONS_MET);
+    }
+
+    /**
+     * Marks the operation as holding an in-flight permit of its queue.
+     */
+    void markInFlight() {
+        setFlag(IN_FLIGHT);
+    }
+
+    /**
+     * Clears the in-flight mark. Returns true only for the caller that should release the permit.
+     */
+    boolean clearInFlight() {
+        return clearFlag(IN_FLIGHT);
+    }
+
+    /**
+     * Marks the operation as holding its resource group.
+     */
+    void markResourceHeld() {
+        setFlag(HOLDS_RESOURCE);
+    }
+
+    /**
+     * Clears the resource mark. Returns true only for the caller that should release the group.
+     */
+    boolean clearResourceHeld() {
+        return clearFlag(HOLDS_RESOURCE);
+    }
+
+    boolean isCompleted() {
+        return (state & (FINISHED | ABORTED)) != 0;
+    }
+
+    boolean addSubscriber(Operation operation) {
+        SubscriberStack stack = subscriberStack;
+        if (stack == null) {
+            SUBSCRIBER_STACK.compareAndSet(this, null, new SubscriberStack());
+            stack = subscriberStack;
+        }
+        return stack.push(operation);
+    }
+
+    boolean removeSubscriber(Operation operation) {
+        SubscriberStack stack = subscriberStack;
+        return stack != null && stack.remove(operation);
     }
 
-    synchronized void notifyDependencyComplete(Operation operation) {
-        if (operation.isAborted() && !canProceedWhenDependenciesAborted.get()) {
+    /**
+     * Returns the operations that depend on this one, including its dependents within its graph run.
+     */
+    List<Operation> getSubscribers() {
+        SubscriberStack stack = subscriberStack;
+        List<Operation> subscribers = stack != null ? stack.getOperations() : new ArrayList<Operation>(0);
+
+        GraphRun run = graphRun;
+        if (run != null) {
+            for (int i = run.getDependentsStart(graphNode), end = run.getDependentsEnd(graphNode); i < end; i++) {
+                subscribers.add(run.getDependent(i));
+            }
+        }
+        return subscribers;
+    }
+
+    /**
+     * Makes the operation a node of the graph run, with the dependencies the template declares for the node.
+     */
+    void joinGraphRun(GraphRun graphRun, int graphNode, int dependencyCount) {
+        this.graphRun = graphRun;
+        this.graphNode = graphNode;
+        PENDING_DEPENDENCIES.addAndGet(this, dependencyCount);
+    }
+
+    /**
+     * Takes a dependency on the start of the producer, which is resolved once the producer begins execution,
+     * or completes without beginning it.
+     */
+    void addStreamingDependency(Operation producer) {
+        setFlag(STREAMING);
+        PENDING_DEPENDENCIES.incrementAndGet(this);
+
+        SubscriberStack stack = producer.startSubscriberStack;
+        if (stack == null) {
+            START_SUBSCRIBER_STACK.compareAndSet(producer, null, new SubscriberStack());
+            stack = producer.startSubscriberStack;
+        }
+        if (!stack.push(this)) {
+            // The producer has already started or completed.
+            notifyDependencyComplete(producer);
+        }
+    }
+
+    /**
+     * Returns true, if the operation streams from a producer. Such operations run alongside the producer and are never run
+     * as a continuation of the worker of the producer.
+     */
+    boolean isStreamingConsumer() {
+        return hasFlag(STREAMING);
+    }
+
+    synchronized void addChannel(OperationChannel<?> channel) {
+        if (channelList == null) {
+            channelList = new ArrayList<>(1);
+        }
+        channelList.add(channel);
+
+        if (isCompleted()) {
+            channel.operationDidComplete(this);
+        }
+    }
+
+    void notifyDependencyComplete(Operation operation) {
+        OperationEvents.dependencyResolved(this, operation);
+        if (operation.isAborted() && !hasFlag(PROCEEDS_WHEN_DEPENDENCIES_ABORTED)) {
             cancel();
             return;
         }
 
-        dependencyList.removeOperation(operation);
+        onDependencyResolved();
+    }
+
+    private void onDependencyResolved() {
+        if (PENDING_DEPENDENCIES.decrementAndGet(this) != 0) {
+            return;
+        }
+
+        // The queue is read after the decrement, while addOperation sets the queue before reading the counter,
+        // so at least one of them observes the operation as ready.
+        OperationQueue queue = operationQueue;
+        if (queue != null) {
+            queue.executeOperation(this);
+        }
+    }
+
+    private OperationQueueMetrics getQueueMetrics() {
+        OperationQueue queue = operationQueue;
+        return queue != null ? queue.metrics : null;
+    }
+
+    private boolean hasFlag(int flag) {
+        return (state & flag) != 0;
+    }
+
+    /**
+     * Sets the flag. Returns false, if it was already set.
+     */
+    private boolean setFlag(int flag) {
+        while (true) {
+            int current = state;
+            if ((current & flag) != 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current | flag)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Clears the flag. Returns false, if it was not set.
+     */
+    private boolean clearFlag(int flag) {
+        while (true) {
+            int current = state;
+            if ((current & flag) == 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current & ~flag)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Sets the completion flag, unless one of the rejected flags is already set. Returns true, if the transition happened.
+     */
+    private boolean transition(int completionFlag, int rejectedFlags) {
+        while (true) {
+            int current = state;
+            if ((current & rejectedFlags) != 0) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current | completionFlag)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Marks the operation as cancelled and interrupts its execution.
+     * Returns true, if the operation was aborted as a result and its completion still has to run.
+     */
+    private boolean markCancelled() {
+        if (!transition(CANCELLED, FINISHED | CANCELLED)) {
+            return false;
+        }
+        OperationEvents.completed(this, "CANCELLED");
+
+        OperationQueueMetrics metrics = getQueueMetrics();
+        if (metrics != null) {
+            metrics.operationCancelled(this);
+        }
+
+        synchronized (this) {
+            if (executingThread != null) {
+                executingThread.interrupt();
+            }
+        }
+
+        return transition(ABORTED, FINISHED | ABORTED);
+    }
+
+    /**
+     * Runs the completion of the operation, which has just finished or aborted, and of every dependent its abort cancels in turn.
+     * Cancelled dependents are queued on the work list instead of being completed recursively.
+     */
+    private void complete(OperationState completionState) {
+        ArrayDeque<Operation> workList = null;
+        Operation operation = this;
+        while (operation != null) {
+            workList = operation.runCompletion(completionState, workList);
+            operation = workList != null ? workList.poll() : null;
+            completionState = OperationState.ABORTED;
+        }
+    }
+
+    private ArrayDeque<Operation> runCompletion(OperationState completionState, ArrayDeque<Operation> workList) {
+        OperationQueueMetrics metrics = getQueueMetrics();
+        if (metrics != null) {
+            if (completionState == OperationState.FINISHED) {
+                metrics.operationFinished(this);
+            } else {
+                metrics.operationAborted(this);
+            }
+        }
+
+        SubscriberStack stack = SUBSCRIBER_STACK.getAndSet(this, SubscriberStack.CLOSED_STACK);
+        if (stack != null) {
+            for (Operation subscriber : stack.close()) {
+                workList = resolveSubscriber(subscriber, completionState, workList);
+            }
+        }
+
+        GraphRun run = graphRun;
+        if (run != null) {
+            for (int i = run.getDependentsStart(graphNode), end = run.getDependentsEnd(graphNode); i < end; i++) {
+                workList = resolveSubscriber(run.getDependent(i), completionState, workList);
+            }
+        }
+
+        // Streaming dependents of an operation that completed without starting are resolved as regular dependents.
+        SubscriberStack startStack = startSubscriberStack != SubscriberStack.CLOSED_STACK
+                ? START_SUBSCRIBER_STACK.getAndSet(this, SubscriberStack.CLOSED_STACK) : null;
+        if (startStack != null) {
+            for (Operation subscriber : startStack.close()) {
+                workList = resolveSubscriber(subscriber, completionState, workList);
+            }
+        }
+        closeChannels();
+
+        notifyListeners(completionState);
+        operationDidComplete();
+        BatchStage.BatchOperation memberOf = leaveBatch();
+        if (memberOf != null) {
+            memberOf.memberDidComplete();
+        }
+        if (operationQueue != null) {
+            operationQueue.notifyOperationComplete(this);
+        }
+        return workList;
+    }
+
+    private void releaseStartSubscribers() {
+        // Closing an absent stack makes a streaming dependency added later resolve right away.
+        if (startSubscriberStack == null && START_SUBSCRIBER_STACK.compareAndSet(this, null, SubscriberStack.CLOSED_STACK)) {
+            return;
+        }
+
+        SubscriberStack stack = START_SUBSCRIBER_STACK.getAndSet(this, SubscriberStack.CLOSED_STACK);
+        for (Operation subscriber : stack.close()) {
+            OperationEvents.dependencyResolved(subscriber, this);
+            subscriber.onDependencyResolved();
+        }
+    }
 
-        if (dependencyList.isEmpty() && operationQueue != null) {
-            operationQueue.executeOperation(this);
+    private void closeChannels() {
+        List<OperationChannel<?>> channels;
+        synchronized (this) {
+            channels = channelList != null ? new ArrayList<>(channelList) : null;
+        }
+
+        if (channels != null) {
+            for (OperationChannel<?> channel : channels) {
+                channel.operationDidComplete(this);
+            }
         }
     }
 
+    /**
+     * Resolves the dependency of the subscriber on this operation, which has just completed.
+     * A subscriber cancelled by the abort is added to the work list, which is allocated on first use.
+     */
+    private ArrayDeque<Operation> resolveSubscriber(Operation subscriber, OperationState completionState, ArrayDeque<Operation> workList) {
+        OperationEvents.dependencyResolved(subscriber, this);
+        if (completionState == OperationState.ABORTED && !subscriber.hasFlag(PROCEEDS_WHEN_DEPENDENCIES_ABORTED)) {
+            if (subscriber.markCancelled()) {
+                if (workList == null) {
+                    workList = new ArrayDeque<>();
+                }
+                workList.add(subscriber);
+            }
+        } else {
+            subscriber.onDependencyResolved();
+        }
+        return workList;
+    }
+
     private boolean meetsAllConditions() {
+        if (conditionList == null) {
+            return true;
+        }
+
         for (OperationCondition condition : conditionList) {
+            // Asynchronous conditions are evaluated by the queue before dispatch.
+            if (condition instanceof AsyncOperationCondition && hasFlag(ASYNC_CONDITIONS_MET)) {
+                continue;
+            }
             if (condition.evaluate() == false) {
                 return false;
             }
@@ -278,8 +1015,49 @@ public abstract class Operation implements Runnable {
         return true;
     }
 
-    private synchronized void notifyObservers(OperationState operationState) {
+    /**
+     * Delivers a lifecycle event deferred by the event dispatcher of the queue. Called on the dispatcher thread.
+     */
+    void deliverEvent(OperationState operationState) {
+        notifyObservers(operationState, false, true);
+        if (operationState != OperationState.STARTED) {
+            notifyCompletionHandler();
+        }
+    }
+
+    /**
+     * Notifies the observers and, on completion, the completion handler.
+     * If the queue dispatches events on its own thread, only the observers that must run inline are notified here.
+     */
+    private void notifyListeners(OperationState operationState) {
+        OperationQueue queue = operationQueue;
+        EventDispatcher eventDispatcher = queue != null ? queue.eventDispatcher : null;
+        if (eventDispatcher == null) {
+            notifyObservers(operationState, true, true);
+        } else {
+            notifyObservers(operationState, true, false);
+            boolean hasDeferredListeners = observerList != null || (operationState != OperationState.STARTED && completionHandler != null);
+            if (!hasDeferredListeners || eventDispatcher.publish(this, operationState)) {
+                return;
+            }
+            notifyObservers(operationState, false, true);
+        }
+
+        if (operationState != OperationState.STARTED) {
+            notifyCompletionHandler();
+        }
+    }
+
+    private synchronized void notifyObservers(OperationState operationState, boolean includesInline, boolean includesDeferred) {
+        if (observerList == null) {
+            return;
+        }
+
         for (OperationObserver operationObserver : observerList) {
+            if (!(operationObserver.isNotifiedInline() ? includesInline : includesDeferred)) {
+                continue;
+            }
+
             switch (operationState) {
                 case STARTED:
                     operationObserver.operationDidStart();
@@ -294,20 +1072,13 @@ public abstract class Operation implements Runnable {
         }
     }
 
-    private synchronized void notifySubscribers() {
-        for (Operation operation : subscriberList.getOperations()) {
-            operation.notifyDependencyComplete(this);
-        }
-        subscriberList.clear();
-    }
-
-    private synchronized void notifyCompletionHandler() {
+    synchronized void notifyCompletionHandler() {
         if (completionHandler != null) {
             completionHandler.onComplete();
         }
     }
 
-    private enum OperationState {
+    enum OperationState {
         STARTED,
         ABORTED,
         FINISHED
@@ -0,0 +1,161 @@
+package com.kryonite.modules.operations;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Operation channel streams items from a producer operation to a consumer operation while both are running.
+ * Connecting the channel makes the consumer depend on the start of the producer instead of its completion,
+ * so the consumer drains items as the producer sends them, and at most the capacity of the channel is held in between.
+ *
+ * The channel follows the lifecycle of both operations. When the producer finishes, the channel closes and the consumer
+ * receives the remaining items and then null. When the producer aborts, receiving throws a CancellationException.
+ * When the consumer completes first, sending returns false, so the producer can stop early.
+ * NOTE: The producer and the consumer run at the same time, so the queue must be able to run both at once.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class OperationChannel<T> {
+    private static final int OPEN = 0;
+    private static final int CLOSED = 1;
+    private static final int ABORTED = 2;
+    private static final int CANCELLED = 3;
+
+    private final Operation producer;
+    private final Operation consumer;
+    private final int capacity;
+    private final ArrayDeque<T> items;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int state = OPEN;
+
+    /**
+     * Connects the producer to the consumer through a channel holding up to the capacity of items.
+     * @param producer
+     * @param consumer
+     * @param capacity - Maximum number of items sent but not yet received. Sending blocks while the channel is full.
+     */
+    public OperationChannel(Operation producer, Operation consumer, int capacity) {
+        this.producer = producer;
+        this.consumer = consumer;
+        this.capacity = Math.max(capacity, 1);
+        this.items = new ArrayDeque<>(Math.min(this.capacity, 1024));
+
+        producer.addChannel(this);
+        consumer.addChannel(this);
+        consumer.addStreamingDependency(producer);
+    }
+
+    /**
+     * Sends the item to the consumer, waiting while the channel is full.
+     * Returns false, if the consumer has already completed and will not receive it.
+     * @param item
+     * @return
+     * @throws InterruptedException - If the producer is interrupted while waiting, for example when it is cancelled.
+     * @throws IllegalStateException - If the producer has already finished or aborted.
+     */
+    public boolean send(T item) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (state == OPEN && items.size() >= capacity) {
+                notFull.await();
+            }
+
+            if (state == CANCELLED) {
+                return false;
+            }
+            if (state != OPEN) {
+                throw new IllegalStateException("The producer of the channel has already completed.");
+            }
+
+            items.add(item);
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Receives the next item, waiting while the channel is empty. Returns null, once the producer has finished and every item has been received.
+     * @return
+     * @throws InterruptedException - If the consumer is interrupted while waiting, for example when it is cancelled.
+     * @throws CancellationException - If the producer aborted or was cancelled.
+     */
+    public T receive() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (state == OPEN && items.isEmpty()) {
+                notEmpty.await();
+            }
+
+            if (state == ABORTED) {
+                throw new CancellationException("The producer of the channel was aborted.");
+            }
+
+            T item = items.poll();
+            if (item != null) {
+                notFull.signal();
+            }
+            return item;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of items sent but not yet received.
+     * @return
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return items.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the producer operation.
+     * @return
+     */
+    public Operation getProducer() {
+        return producer;
+    }
+
+    /**
+     * Returns the consumer operation.
+     * @return
+     */
+    public Operation getConsumer() {
+        return consumer;
+    }
+
+    /**
+     * Closes the channel once one of its operations has completed. The first completion decides the final state.
+     */
+    void operationDidComplete(Operation operation) {
+        lock.lock();
+        try {
+            if (state != OPEN) {
+                return;
+            }
+
+            if (operation == producer) {
+                state = operation.isFinished() ? CLOSED : ABORTED;
+            } else {
+                state = CANCELLED;
+                items.clear();
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.kryonite.modules.operations;
+
+import jdk.jfr.Name;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Category;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Description;
+
+/**
+ * JDK Flight Recorder events emitted over the lifecycle of operations. JFR records the thread and time of each event.
+ * While no recording is running, every event is checked with isEnabled() before any field is filled in,
+ * so an event costs little more than the check, and its allocation is usually eliminated by escape analysis.
+ */
+final class OperationEvents {
+    static final String CATEGORY = "Operation Queue";
+    static final String EXECUTION = "com.kryonite.operations.Execution";
+    static final String COMPLETION = "com.kryonite.operations.Completion";
+    static final String DEPENDENCY = "com.kryonite.operations.Dependency";
+
+    private OperationEvents() {
+    }
+
+    static Execution beginExecution() {
+        Execution event = new Execution();
+        event.begin();
+        return event;
+    }
+
+    static void endExecution(Execution event, Operation operation) {
+        if (!event.shouldCommit()) {
+            return;
+        }
+
+        event.operationId = operation.getNumericId();
+        event.operationType = operation.getOperationType();
+        event.queue = queueName(operation);
+        event.attempt = operation.getAttemptCount();
+        event.outcome = operation.isFinished() ? "FINISHED" : operation.isAborted() ? "ABORTED" : "PENDING";
+        event.commit();
+    }
+
+    static void completed(Operation operation, String completion) {
+        Completion event = new Completion();
+        if (!event.isEnabled()) {
+            return;
+        }
+
+        event.operationId = operation.getNumericId();
+        event.operationType = operation.getOperationType();
+        event.queue = queueName(operation);
+        event.completion = completion;
+        event.commit();
+    }
+
+    static void dependencyResolved(Operation dependent, Operation dependency) {
+        Dependency event = new Dependency();
+        if (!event.isEnabled()) {
+            return;
+        }
+
+        event.operationId = dependent.getNumericId();
+        event.dependencyId = dependency.getNumericId();
+        event.queue = queueName(dependent);
+        event.dependencyAborted = dependency.isAborted();
+        event.commit();
+    }
+
+    private static String queueName(Operation operation) {
+        OperationQueue queue = operation.getOperationQueue();
+        return queue != null ? queue.getName() : null;
+    }
+
+    @Name(EXECUTION)
+    @Label("Operation Execution")
+    @Description("An operation running on a thread, from its start notification through execute().")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Execution extends Event {
+        @Label("Operation Id")
+        long operationId;
+
+        @Label("Operation Type")
+        String operationType;
+
+        @Label("Queue")
+        String queue;
+
+        @Label("Attempt")
+        int attempt;
+
+        @Label("Outcome")
+        @Description("FINISHED or ABORTED, or PENDING if the operation finishes later or retries.")
+        String outcome;
+    }
+
+    @Name(COMPLETION)
+    @Label("Operation Completion")
+    @Description("An operation that finished, aborted or was cancelled.")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Completion extends Event {
+        @Label("Operation Id")
+        long operationId;
+
+        @Label("Operation Type")
+        String operationType;
+
+        @Label("Queue")
+        String queue;
+
+        @Label("Completion")
+        String completion;
+    }
+
+    @Name(DEPENDENCY)
+    @Label("Operation Dependency Resolved")
+    @Description("A dependency edge resolved by the completion of the dependency, on the thread that completed it.")
+    @Category(CATEGORY)
+    @StackTrace(false)
+    static final class Dependency extends Event {
+        @Label("Operation Id")
+        long operationId;
+
+        @Label("Dependency Id")
+        long dependencyId;
+
+        @Label("Queue")
+        String queue;
+
+        @Label("Dependency Aborted")
+        boolean dependencyAborted;
+    }
+}
@@ -0,0 +1,17 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Operation factory rebuilds a journaled operation from its payload when a queue resumes from its journal.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public abstract class OperationFactory {
+    /**
+     * Returns a new operation equivalent to the one journaled with the payload.
+     * Dependencies between recovered operations are restored by the queue and must not be added here.
+     * @param payload
+     * @return
+     */
+    protected abstract Operation create(byte[] payload);
+}
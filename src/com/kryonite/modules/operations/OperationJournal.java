@@ -0,0 +1,342 @@
+package com.kryonite.modules.operations;
+
+import java.util.Map;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.nio.file.Path;
+import java.nio.file.Files;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Operation journal is a write-ahead log that lets an operation queue survive a crash of the JVM.
+ * The queue journals every operation that has a journal entry when it is added, every dependency between journaled operations,
+ * and every finish or abort. After a restart, the queue rebuilds the operations that had not completed through the registered factories.
+ *
+ * Records are appended to a memory-mapped file and forced to disk by a background thread every commit interval,
+ * so all the records appended within an interval share one force (group commit).
+ * NOTE: Records appended after the last force may be lost in a crash. Call sync() when a submission must be durable before proceeding.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class OperationJournal {
+    private static final byte REGISTER = 1;
+    private static final byte DEPENDENCY = 2;
+    private static final byte FINISH = 3;
+    private static final byte ABORT = 4;
+
+    private static final String LOG_FILE_NAME = "operations.log";
+    private static final String COMPACTION_FILE_NAME = "operations.log.compacting";
+    private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final long DEFAULT_COMMIT_INTERVAL = 5;
+
+    private final Path directory;
+    private final int chunkSize;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Map<String, OperationFactory> factories = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> liveEntries = new TreeMap<>();
+    private final Map<Long, List<Long>> dependencies = new HashMap<>();
+    private final Thread committerThread;
+
+    private MappedLog log;
+    private long nextJournalId = 1;
+    private volatile long commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private volatile boolean isClosed = false;
+
+    /**
+     * Opens the journal stored in the directory, creating it if needed, and reads the operations that have not completed.
+     * @param directory
+     * @throws IOException
+     */
+    public OperationJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Opens the journal stored in the directory with the specified size of the mapped log chunks.
+     * @param directory
+     * @param chunkSize - Size of each mapped region of the log in bytes. Also the limit on the size of a single record.
+     * @throws IOException
+     */
+    public OperationJournal(Path directory, int chunkSize) throws IOException {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(COMPACTION_FILE_NAME));
+        log = new MappedLog(directory.resolve(LOG_FILE_NAME), chunkSize, this::replayRecord);
+
+        committerThread = new Thread(this::runCommitter, "operation-journal-committer");
+        committerThread.setDaemon(true);
+        committerThread.start();
+    }
+
+    /**
+     * Registers the factory that rebuilds the operations journaled under the name.
+     * @param factoryName
+     * @param operationFactory
+     */
+    public void registerFactory(String factoryName, OperationFactory operationFactory) {
+        factories.put(factoryName, operationFactory);
+    }
+
+    /**
+     * Sets how often the appended records are forced to disk.
+     * @param commitInterval - Commit interval in milliseconds.
+     */
+    public void setCommitInterval(long commitInterval) {
+        this.commitInterval = commitInterval;
+    }
+
+    /**
+     * Returns the number of journaled operations that have not completed.
+     * @return
+     */
+    public int getPendingOperationCount() {
+        appendLock.lock();
+        try {
+            return liveEntries.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    public void sync() {
+        List<MappedByteBuffer> dirtyChunks;
+        appendLock.lock();
+        try {
+            dirtyChunks = log.takeDirtyChunks();
+        } finally {
+            appendLock.unlock();
+        }
+
+        for (MappedByteBuffer chunk : dirtyChunks) {
+            chunk.force();
+        }
+    }
+
+    /**
+     * Rewrites the log with only the operations that have not completed and the dependencies between them.
+     * @throws IOException
+     */
+    public void compact() throws IOException {
+        appendLock.lock();
+        try {
+            Path compactionFile = directory.resolve(COMPACTION_FILE_NAME);
+            Files.deleteIfExists(compactionFile);
+
+            MappedLog compacted = new MappedLog(compactionFile, chunkSize, (type, body) -> { });
+            for (Entry entry : liveEntries.values()) {
+                compacted.append(REGISTER, encodeRegistration(entry.journalId, entry.factoryName, entry.payload));
+            }
+            // A dependency is always registered before an edge to it is journaled, while the dependent may register later.
+            // So an edge stays relevant as long as its dependency has not completed.
+            for (Map.Entry<Long, List<Long>> edges : dependencies.entrySet()) {
+                edges.getValue().retainAll(liveEntries.keySet());
+                for (Long dependencyId : edges.getValue()) {
+                    compacted.append(DEPENDENCY, encodeIds(edges.getKey(), dependencyId));
+                }
+            }
+            dependencies.values().removeIf(List::isEmpty);
+            compacted.close();
+
+            log.close();
+            Files.move(compactionFile, directory.resolve(LOG_FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log = new MappedLog(directory.resolve(LOG_FILE_NAME), chunkSize, (type, body) -> { });
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the pending records to disk and stops the journal.
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        isClosed = true;
+        committerThread.interrupt();
+
+        appendLock.lock();
+        try {
+            log.close();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void journalRegistration(Operation operation) {
+        appendLock.lock();
+        try {
+            long journalId = assignJournalId(operation);
+            Entry entry = new Entry(journalId, operation.getJournalFactoryName(), operation.getJournalPayload());
+            liveEntries.put(journalId, entry);
+            append(REGISTER, encodeRegistration(journalId, entry.factoryName, entry.payload));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void journalDependency(Operation dependent, Operation dependency) {
+        appendLock.lock();
+        try {
+            long dependentId = assignJournalId(dependent);
+            long dependencyId = assignJournalId(dependency);
+            dependencies.computeIfAbsent(dependentId, id -> new ArrayList<>(2)).add(dependencyId);
+            append(DEPENDENCY, encodeIds(dependentId, dependencyId));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    void journalCompletion(Operation operation) {
+        appendLock.lock();
+        try {
+            long journalId = operation.journalId;
+            if (liveEntries.remove(journalId) == null) {
+                return;
+            }
+            dependencies.remove(journalId);
+            append(operation.isFinished() ? FINISH : ABORT, encodeIds(journalId));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the operations that have not completed, with the dependencies between them.
+     * Operations whose factory is not registered are skipped.
+     */
+    List<Operation> recoverOperations() {
+        Map<Long, Operation> operations = new TreeMap<>();
+
+        appendLock.lock();
+        try {
+            for (Entry entry : liveEntries.values()) {
+                OperationFactory factory = factories.get(entry.factoryName);
+                if (factory == null) {
+                    continue;
+                }
+
+                Operation operation = factory.create(entry.payload);
+                operation.setJournalEntry(entry.factoryName, entry.payload);
+                operation.journalId = entry.journalId;
+                operation.markJournaled();
+                operations.put(entry.journalId, operation);
+            }
+
+            for (Map.Entry<Long, List<Long>> edges : dependencies.entrySet()) {
+                Operation dependent = operations.get(edges.getKey());
+                if (dependent == null) {
+                    continue;
+                }
+                for (Long dependencyId : edges.getValue()) {
+                    Operation dependency = operations.get(dependencyId);
+                    if (dependency != null) {
+                        dependent.addDependency(dependency);
+                    }
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+
+        return new ArrayList<>(operations.values());
+    }
+
+    private long assignJournalId(Operation operation) {
+        if (operation.journalId == 0) {
+            operation.journalId = nextJournalId++;
+        }
+        return operation.journalId;
+    }
+
+    private void append(byte type, ByteBuffer body) {
+        try {
+            log.append(type, body);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    private void replayRecord(byte type, ByteBuffer body) {
+        long journalId = body.getLong();
+        nextJournalId = Math.max(nextJournalId, journalId + 1);
+
+        switch (type) {
+            case REGISTER:
+                byte[] factoryName = new byte[body.getShort()];
+                body.get(factoryName);
+                byte[] payload = new byte[body.getInt()];
+                body.get(payload);
+                liveEntries.put(journalId, new Entry(journalId, new String(factoryName, StandardCharsets.UTF_8), payload));
+                break;
+            case DEPENDENCY:
+                long dependencyId = body.getLong();
+                nextJournalId = Math.max(nextJournalId, dependencyId + 1);
+                dependencies.computeIfAbsent(journalId, id -> new ArrayList<>(2)).add(dependencyId);
+                break;
+            case FINISH:
+            case ABORT:
+                liveEntries.remove(journalId);
+                dependencies.remove(journalId);
+                break;
+        }
+    }
+
+    private void runCommitter() {
+        while (!isClosed) {
+            try {
+                Thread.sleep(commitInterval);
+            } catch (InterruptedException exception) {
+                return;
+            }
+
+            try {
+                sync();
+            } catch (UncheckedIOException exception) {
+                // Retried on the next commit.
+            }
+        }
+    }
+
+    private static ByteBuffer encodeRegistration(long journalId, String factoryName, byte[] payload) {
+        byte[] name = factoryName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(8 + 2 + name.length + 4 + payload.length);
+        body.putLong(journalId).putShort((short) name.length).put(name).putInt(payload.length).put(payload);
+        body.flip();
+        return body;
+    }
+
+    private static ByteBuffer encodeIds(long... ids) {
+        ByteBuffer body = ByteBuffer.allocate(8 * ids.length);
+        for (long id : ids) {
+            body.putLong(id);
+        }
+        body.flip();
+        return body;
+    }
+
+    private static final class Entry {
+        private final long journalId;
+        private final String factoryName;
+        private final byte[] payload;
+
+        private Entry(long journalId, String factoryName, byte[] payload) {
+            this.journalId = journalId;
+            this.factoryName = factoryName;
+            this.payload = payload;
+        }
+    }
+}
@@ -1,30 +1,35 @@
 package com.kryonite.modules.operations;
 
 import java.util.Map;
-import java.util.HashMap;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 
 class OperationList {
-    private Map<String, Operation> operationsMap = new HashMap<>();
+    // Keyed by identity, so tracking an operation neither generates its string ID nor allocates an entry.
+    private Map<Operation, Operation> operationsMap = new IdentityHashMap<>();
 
     public void addOperation(Operation operation) {
-        operationsMap.put(operation.getOperationId(), operation);
+        operationsMap.put(operation, operation);
     }
 
     public void removeOperation(Operation operation) {
-        operationsMap.remove(operation.getOperationId());
+        operationsMap.remove(operation);
     }
 
     public Collection<Operation> getOperations() {
         return operationsMap.values();
     }
 
+    public int size() {
+        return operationsMap.size();
+    }
+
     public boolean isEmpty() {
         return operationsMap.isEmpty();
     }
 
     public boolean containsOperation(Operation operation) {
-        return operationsMap.containsKey(operation.getOperationId());
+        return operationsMap.containsKey(operation);
     }
 
     public void clear() {
@@ -25,6 +25,19 @@ public abstract class OperationObserver {
      */
     protected abstract void operationDidFinish();
 
+    /**
+     * Called once a failed attempt of the operation has returned and its retry is scheduled. The next attempt starts the observer again.
+     */
+    void attemptDidFail() {
+    }
+
+    /**
+     * Returns true, if the observer must be notified on the thread that raised the event, even when the queue dispatches events on its own thread.
+     */
+    boolean isNotifiedInline() {
+        return false;
+    }
+
     void setOperation(Operation operation) {
         this.operation = operation;
     }
@@ -1,24 +1,91 @@
 package com.kryonite.modules.operations;
 
-import java.util.concurrent.Future;
+import java.util.Map;
+import java.util.List;
+import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.lang.reflect.Method;
+import javax.management.ObjectName;
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.PriorityBlockingQueue;
 
 /**
  * Operation Queue is a wrapper around executor service that executes the operations, once all its dependencies are met.
+ * Ready operations wait in a priority ordered queue and are handed to the executor only when a slot is free,
+ * so a high priority operation never waits behind a backlog of lower priority work.
+ * Waiting operations age, so low priority work is eventually dispatched as well.
+ * With a graph-aware scheduling policy, operations with the most work depending on them are dispatched first, which shortens large graphs.
  *
  * @author  Vaibhav Dwivedi
  * @version 1.0
  */
 public class OperationQueue {
+    private String name = "OperationQueue-" + QUEUE_SEQUENCE.incrementAndGet();
     private long maxExecutionTime = -1;
     private int maxConcurrentOperations = 0;
-    private ExecutorService executor = null;
+    private volatile ExecutorService executor = null;
+    private ExecutionMode executionMode = ExecutionMode.FIXED_THREAD_POOL;
     private boolean terminateExecutorAutomatically = true;
     private boolean autoFinishOperationsOnCompletion = false;
+    private long priorityAgingInterval = DEFAULT_PRIORITY_AGING_INTERVAL;
+    private volatile SchedulingPolicy schedulingPolicy = SchedulingPolicy.FIFO;
+    private final CriticalPathEstimator criticalPathEstimator = new CriticalPathEstimator();
     private OperationList operationList = new OperationList();
+    private final AtomicInteger dispatchedOperations = new AtomicInteger(0);
+    private final AtomicInteger inFlightOperations = new AtomicInteger(0);
+    private volatile int maxInFlightOperations = 0;
+    private final ConcurrentHashMap<Object, Flight> flights = new ConcurrentHashMap<>();
+    private volatile ResultCache resultCache = null;
+    private final ConcurrentHashMap<String, BatchStage> batchStages = new ConcurrentHashMap<>();
+    private final AtomicLong dispatchSequence = new AtomicLong(0);
+    private final PriorityBlockingQueue<Operation> readyQueue = new PriorityBlockingQueue<>(16, READY_ORDER);
+    private final ThreadLocal<Continuation> continuation = ThreadLocal.withInitial(Continuation::new);
+    private ObjectName metricsObjectName = null;
+    private CompletableFuture<Void> drainFuture = null;
+    private volatile OperationJournal journal = null;
+    private int capacity = 0;
+    private AdmissionPolicy admissionPolicy = AdmissionPolicy.BLOCK;
+    private long admissionTimeout = 0;
+    private long executorKeepAlive = 0;
+    private int warmThreadCount = 0;
+    private boolean isShutdown = false;
 
+    volatile OperationQueueMetrics metrics = null;
+    volatile EventDispatcher eventDispatcher = null;
+
+    private static final AtomicInteger QUEUE_SEQUENCE = new AtomicInteger(0);
+    // Shared by every queue, as the stamps are written into operations that may belong to other queues.
+    private static final AtomicLong GRAPH_STAMP = new AtomicLong(0);
     private static final int DEFAULT_MAX_CONCURRENT_OPERATIONS = 5;
+    private static final long DEFAULT_PRIORITY_AGING_INTERVAL = 100;
+    private static final int MAX_INLINE_DEPTH = 64;
+    private static final long DEFAULT_THREAD_KEEP_ALIVE = 60000;
+    private static final int MAX_SPARE_WORK_STEALING_THREADS = 256;
+    private static final Comparator<Operation> READY_ORDER = new Comparator<Operation>() {
+        @Override
+        public int compare(Operation first, Operation second) {
+            int result = Long.compare(first.dispatchKey - second.dispatchKey, 0);
+            return result != 0 ? result : Long.compare(first.dispatchSequence, second.dispatchSequence);
+        }
+    };
 
     /**
      * Initializes operation queue.
@@ -35,6 +102,20 @@ public class OperationQueue {
         setMaxConcurrentOperationsCount(maxConcurrentOperations);
     }
 
+    /**
+     * Initializes operation queue with a limit on maximum concurrent operations that runs its operations in the specified mode.
+     * @param maxConcurrentOperations
+     * @param executionMode
+     */
+    public OperationQueue(int maxConcurrentOperations, ExecutionMode executionMode) {
+        if (executionMode == ExecutionMode.VIRTUAL_THREADS && findVirtualThreadExecutorFactory() == null) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or later.");
+        }
+
+        setMaxConcurrentOperationsCount(maxConcurrentOperations);
+        this.executionMode = executionMode;
+    }
+
     /**
      * Initializes operation queue with a custom executor.
      * @param customExecutor
@@ -46,28 +127,188 @@ public class OperationQueue {
 
     /**
      * Adds the specified operation to the queue and begins it's execution provided all its dependencies are satisfied.
+     * If the queue is at capacity, the admission policy of the queue decides what happens to the operation.
      * @param operation
+     * @return
      */
-    public void addOperation(Operation operation) {
-        operation.setOperationQueue(this);
+    public AdmissionResult addOperation(Operation operation) {
+        return addOperation(operation, admissionPolicy);
+    }
 
-        if (executor == null || executor.isShutdown() || executor.isTerminated()) {
-            initExecutor();
-        }
+    /**
+     * Adds the specified operation to the queue without blocking. Returns REJECTED, if the queue is at capacity.
+     * @param operation
+     * @return
+     */
+    public AdmissionResult tryAddOperation(Operation operation) {
+        return addOperation(operation, AdmissionPolicy.REJECT);
+    }
 
-        trackOperation(operation);
-        if (!operation.hasUnfinishedDependencies()) {
-            executeOperation(operation);
+    /**
+     * Adds the specified operations to the queue and begins each operations execution provided all its dependencies are satisfied.
+     * Each operation is admitted on its own, so under the REJECT or BLOCK_WITH_TIMEOUT policy only some of them may be added.
+     * @param operations
+     * @return - The admission result of each operation, in the order of the operations.
+     */
+    public List<AdmissionResult> addOperations(Operation... operations) {
+        List<AdmissionResult> results = new ArrayList<>(operations.length);
+        for (Operation operation : operations) {
+            results.add(addOperation(operation));
         }
+        return results;
     }
 
     /**
-     * Adds the specified operations to the queue and begins each operations execution provided all its dependencies are satisfied.
+     * Adds a whole graph of operations to the queue in one pass.
+     * The graph is validated before any operation is added, and all the operations without unfinished dependencies are dispatched as one batch.
+     * Prefer this over addOperations for large graphs.
+     * The graph is admitted as a whole, so a graph larger than the capacity of the queue is always rejected.
      * @param operations
+     * @return
+     * @throws CyclicDependencyException - If the operations depend on each other in a cycle. No operation is added in that case.
+     */
+    public AdmissionResult addOperationGraph(Collection<? extends Operation> operations) {
+        validateAcyclic(operations);
+        return addGraph(operations, operations);
+    }
+
+    /**
+     * Adds a run of a graph template to the queue. As the template cannot contain a cycle, the graph is not validated,
+     * and only the operations of the root nodes are checked for readiness.
+     * The run is admitted as a whole, as addOperationGraph does.
+     * @param graphRun
+     * @return
+     */
+    public AdmissionResult addGraphRun(GraphRun graphRun) {
+        return addGraph(graphRun.getOperations(), graphRun.getRootOperations());
+    }
+
+    /**
+     * Adds the operations of an acyclic graph and dispatches the ones among the candidates without unfinished dependencies.
      */
-    public void addOperations(Operation... operations) {
+    private AdmissionResult addGraph(Collection<? extends Operation> operations, Collection<? extends Operation> candidates) {
         for (Operation operation : operations) {
-            addOperation(operation);
+            operation.setOperationQueue(this);
+        }
+
+        AdmissionResult result = trackOperations(operations);
+        if (result != AdmissionResult.ACCEPTED) {
+            for (Operation operation : operations) {
+                operation.setOperationQueue(null);
+            }
+            return result;
+        }
+
+        OperationQueueMetrics metrics = this.metrics;
+        for (Operation operation : operations) {
+            if (metrics != null) {
+                metrics.operationAdded(operation);
+            }
+            journalRegistration(operation);
+        }
+
+        for (Operation operation : candidates) {
+            if (!operation.hasUnfinishedDependencies() && !deduplicate(operation) && hasMetAsyncConditions(operation) && prepareReadyOperation(operation)
+                    && hasAcquiredResource(operation) && !collectIntoBatch(operation)) {
+                readyQueue.offer(operation);
+            }
+        }
+        dispatchReadyOperations();
+        return AdmissionResult.ACCEPTED;
+    }
+
+    /**
+     * Limits the number of operations the queue holds, counting the ones waiting on dependencies, ready and executing.
+     * @param capacity - Maximum number of operations. Zero or less removes the limit.
+     * @param admissionPolicy - What happens to operations added while the queue is at capacity.
+     */
+    public synchronized void setCapacity(int capacity, AdmissionPolicy admissionPolicy) {
+        this.capacity = capacity;
+        this.admissionPolicy = admissionPolicy;
+        notifyAll();
+    }
+
+    /**
+     * Sets how long the BLOCK_WITH_TIMEOUT policy waits for the queue to have room.
+     * @param admissionTimeout - Admission timeout in milliseconds.
+     */
+    public void setAdmissionTimeout(long admissionTimeout) {
+        this.admissionTimeout = admissionTimeout;
+    }
+
+    /**
+     * Journals the operations added to the queue from now on, as long as they have a journal entry.
+     * @param journal
+     */
+    public void setJournal(OperationJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Rebuilds the journaled operations that had not completed before the JVM stopped, and adds them to the queue.
+     * The recovered operations are admitted as one graph, as addOperationGraph does.
+     * @return - The recovered operations.
+     * @throws IllegalStateException - If the queue has no journal, or did not admit the recovered operations, for example because they exceed
+     *                                 its capacity or it has been shut down. The operations stay in the journal, so they can be resumed later.
+     */
+    public List<Operation> resumeFromJournal() {
+        if (journal == null) {
+            throw new IllegalStateException("The queue has no journal to resume from.");
+        }
+
+        List<Operation> operations = journal.recoverOperations();
+        AdmissionResult result = addOperationGraph(operations);
+        if (result != AdmissionResult.ACCEPTED) {
+            throw new IllegalStateException("The queue did not admit the " + operations.size() + " recovered operations: " + result + ".");
+        }
+        return operations;
+    }
+
+    /**
+     * Returns a future that completes once every operation added to the queue has finished or aborted.
+     * If the queue is already empty, the returned future is complete.
+     * NOTE: Operations added after the future completes are not covered by it.
+     * @return
+     */
+    public synchronized CompletableFuture<Void> whenAllComplete() {
+        if (operationList.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (drainFuture == null) {
+            drainFuture = new CompletableFuture<>();
+        }
+        return drainFuture.thenApply(ignored -> null);
+    }
+
+    /**
+     * Blocks until every operation added to the queue has finished or aborted.
+     * @throws InterruptedException
+     */
+    public void awaitAll() throws InterruptedException {
+        try {
+            whenAllComplete().get();
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
+        }
+    }
+
+    /**
+     * Blocks until every operation added to the queue has finished or aborted, or the timeout elapses.
+     * Returns false, if the timeout elapsed first.
+     * @param timeout
+     * @param unit
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean awaitAll(long timeout, TimeUnit unit) throws InterruptedException {
+        try {
+            whenAllComplete().get(timeout, unit);
+            return true;
+        } catch (TimeoutException exception) {
+            return false;
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException(exception.getCause());
         }
     }
 
@@ -88,12 +329,303 @@ public class OperationQueue {
 
     /**
      * Sets a maximum limit on the execution of concurrent operations.
+     * In virtual thread mode this is the number of dispatch permits rather than a number of threads.
      * @param maxConcurrentOperations - Maximum number of allowed concurrent operations.
      */
     public void setMaxConcurrentOperationsCount(int maxConcurrentOperations) {
         this.maxConcurrentOperations = maxConcurrentOperations;
     }
 
+    /**
+     * Keeps the executor of the queue alive between bursts of operations, instead of shutting it down every time the queue drains.
+     * Threads above the warm thread count exit once they have been idle for the keep-alive.
+     * @param executorKeepAlive - Keep-alive in milliseconds. Zero shuts the executor down every time the queue drains.
+     */
+    public synchronized void setExecutorKeepAlive(long executorKeepAlive) {
+        this.executorKeepAlive = executorKeepAlive;
+        if (executor instanceof OperationThreadPool) {
+            ((OperationThreadPool) executor).setKeepAliveTime(threadKeepAlive(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Sets how many threads the executor starts up front and keeps while the queue is alive, so a burst of operations never waits on thread creation.
+     * NOTE: Warm threads keep the executor alive between bursts. Call shutdown() once the queue is no longer needed.
+     * @param warmThreadCount
+     */
+    public synchronized void setWarmThreadCount(int warmThreadCount) {
+        this.warmThreadCount = warmThreadCount;
+        if (executor instanceof OperationThreadPool) {
+            ((OperationThreadPool) executor).setCorePoolSize(Math.min(warmThreadCount, maxConcurrentOperations));
+            ((OperationThreadPool) executor).prestartAllCoreThreads();
+        }
+    }
+
+    /**
+     * Stops accepting operations and shuts the executor down once the operations already added have completed.
+     * Operations added afterwards are rejected. A custom executor passed to the queue is left running.
+     */
+    public synchronized void shutdown() {
+        isShutdown = true;
+        notifyAll();
+
+        if (operationList.isEmpty()) {
+            shutdownExecutor();
+        }
+    }
+
+    /**
+     * Returns true, if the queue has been shut down.
+     * @return
+     */
+    public synchronized boolean isShutdown() {
+        return isShutdown;
+    }
+
+    /**
+     * Blocks until the operations added to the queue have completed and its executor has terminated after a shutdown, or the timeout elapses.
+     * Returns false, if the timeout elapsed first, which includes the queue not being shut down in time.
+     * @param timeout
+     * @param unit
+     * @return
+     * @throws InterruptedException
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!awaitAll(timeout, unit)) {
+            return false;
+        }
+
+        ExecutorService executor;
+        synchronized (this) {
+            // An idle executor also terminates on its own, which is not a termination of the queue.
+            long remaining;
+            while (!isShutdown && (remaining = deadline - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            if (!isShutdown) {
+                return false;
+            }
+            if (!terminateExecutorAutomatically || this.executor == null) {
+                return true;
+            }
+            executor = this.executor;
+        }
+        return executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Limits how many operations are in flight at once, counted from the moment an operation is dispatched until it finishes or aborts.
+     * Unlike the concurrent operations limit, which only bounds threads, this also bounds operations that return from execute()
+     * and finish later from a callback, while the thread they started on moves on to other work.
+     * @param maxInFlightOperations - Maximum number of in-flight operations. Zero or less removes the limit.
+     */
+    public void setMaxInFlightOperations(int maxInFlightOperations) {
+        this.maxInFlightOperations = maxInFlightOperations;
+        dispatchReadyOperations();
+    }
+
+    /**
+     * Returns the number of dispatched operations that have not finished or aborted yet, while an in-flight limit is set.
+     * @return
+     */
+    public int getInFlightOperationCount() {
+        return inFlightOperations.get();
+    }
+
+    /**
+     * Executes the ready operations of the batch type together through the batch executor.
+     * A batch is handed over once it holds the maximum number of operations, or once its first operation has waited for the linger time.
+     * Each batch takes a single dispatch slot and in-flight permit, and holds the permit until every operation of the batch has completed.
+     * @param batchType
+     * @param batchExecutor
+     * @param maxBatchSize - Maximum number of operations in a batch.
+     * @param linger - Longest time an operation waits for its batch to fill up, in milliseconds. Rounded up to the 10ms timer tick.
+     */
+    public void registerBatchExecutor(String batchType, BatchExecutor batchExecutor, int maxBatchSize, long linger) {
+        BatchStage previous = batchStages.put(batchType, new BatchStage(this, batchExecutor, maxBatchSize, linger));
+        if (previous != null) {
+            previous.flush();
+        }
+    }
+
+    /**
+     * Serves operations with a deduplication key from the results of recently finished operations with an equal key,
+     * without running them. Result operations receive the cached result.
+     * @param maxEntries - Maximum number of cached results. The least recently used result is evicted beyond it.
+     * @param timeToLive - How long a result is served after its operation finished, in milliseconds.
+     */
+    public void enableResultCache(int maxEntries, long timeToLive) {
+        this.resultCache = new ResultCache(maxEntries, timeToLive);
+    }
+
+    /**
+     * Stops caching results and drops the cached ones.
+     */
+    public void disableResultCache() {
+        this.resultCache = null;
+    }
+
+    /**
+     * Delivers the lifecycle events of the queue operations to their observers and completion handlers on a dedicated thread,
+     * so slow listeners do not hold up the worker threads. Events of each operation are delivered in order.
+     * Timeout observers are still notified inline.
+     * NOTE: Completion handlers may run after whenAllComplete() has completed.
+     * @param bufferSize - Number of events the buffer holds, rounded up to a power of two.
+     * @param overflowPolicy - What happens to events published while the buffer is full. DROP applies only to observer callbacks,
+     *                         the completion handler of an event that does not fit runs inline.
+     */
+    public void enableEventDispatcher(int bufferSize, EventOverflowPolicy overflowPolicy) {
+        replaceEventDispatcher(new EventDispatcher(name, bufferSize, overflowPolicy));
+    }
+
+    /**
+     * Delivers the events published so far and notifies listeners inline from now on.
+     */
+    public void disableEventDispatcher() {
+        replaceEventDispatcher(null);
+    }
+
+    /**
+     * Returns the number of events dropped because the event buffer was full.
+     * @return
+     */
+    public long getDroppedEventCount() {
+        EventDispatcher eventDispatcher = this.eventDispatcher;
+        return eventDispatcher != null ? eventDispatcher.getDroppedEventCount() : 0;
+    }
+
+    /**
+     * Sets how long a ready operation waits before it is treated as one priority level higher.
+     * For example, with an interval of 100ms a LOW operation that has waited 400ms is dispatched ahead of a newly ready NORMAL one.
+     * @param priorityAgingInterval - Aging interval in milliseconds.
+     */
+    public void setPriorityAgingInterval(long priorityAgingInterval) {
+        this.priorityAgingInterval = priorityAgingInterval;
+    }
+
+    /**
+     * Sets the order in which ready operations are dispatched. Defaults to FIFO.
+     * With CRITICAL_PATH, the queue records the execution time of every finished operation under its operation type.
+     * @param schedulingPolicy
+     */
+    public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+    }
+
+    /**
+     * Returns the order in which ready operations are dispatched.
+     * @return
+     */
+    public SchedulingPolicy getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+
+    /**
+     * Seeds the execution time estimate of an operation type, for example from the execution times recorded by an earlier run.
+     * Recorded execution times keep updating the estimate.
+     * @param operationType
+     * @param executionTime
+     * @param unit
+     */
+    public void setExecutionTimeEstimate(String operationType, long executionTime, TimeUnit unit) {
+        criticalPathEstimator.setEstimate(operationType, unit.toNanos(executionTime));
+    }
+
+    /**
+     * Returns the execution time estimate of an operation type.
+     * @param operationType
+     * @param unit
+     * @return
+     */
+    public long getExecutionTimeEstimate(String operationType, TimeUnit unit) {
+        return unit.convert(criticalPathEstimator.estimate(operationType), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sets the name of the queue, used to identify it in metrics.
+     * @param name
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the name of the queue.
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Starts recording metrics for the queue and publishes them as a JMX MBean named after the queue.
+     * The MBean is registered as com.kryonite.modules.operations:type=OperationQueue,name=[queue name].
+     * @return
+     */
+    public synchronized OperationQueueMetrics enableMetrics() {
+        if (metrics != null) {
+            return metrics;
+        }
+
+        OperationQueueMetrics queueMetrics = new OperationQueueMetrics(this);
+        try {
+            ObjectName objectName = new ObjectName("com.kryonite.modules.operations:type=OperationQueue,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(queueMetrics, objectName);
+            metricsObjectName = objectName;
+        } catch (JMException exception) {
+            throw new IllegalStateException("Unable to register the metrics of queue " + name + ".", exception);
+        }
+
+        metrics = queueMetrics;
+        return queueMetrics;
+    }
+
+    /**
+     * Stops recording metrics for the queue and unregisters its MBean.
+     */
+    public synchronized void disableMetrics() {
+        metrics = null;
+        if (metricsObjectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsObjectName);
+        } catch (JMException exception) {
+            // The MBean was unregistered externally.
+        }
+        metricsObjectName = null;
+    }
+
+    /**
+     * Returns the metrics of the queue, or null if metrics are disabled.
+     * @return
+     */
+    public OperationQueueMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of operations added to the queue that have not completed yet.
+     * @return
+     */
+    public synchronized int getOperationCount() {
+        return operationList.size();
+    }
+
+    /**
+     * Returns the number of ready operations waiting for a dispatch slot.
+     * @return
+     */
+    public int getReadyOperationCount() {
+        return readyQueue.size();
+    }
+
     /**
      * Returns the value of the flag that tells if an operation should be auto finished upon completion.
      * @return
@@ -111,39 +643,840 @@ public class OperationQueue {
     }
 
     void executeOperation(Operation operation) {
-        if (operation.isAborted() || operation.isFinished()) {
-            notifyOperationComplete(operation);
+        if (deduplicate(operation) || !hasMetAsyncConditions(operation) || !prepareReadyOperation(operation) || !hasAcquiredResource(operation)
+                || collectIntoBatch(operation)) {
             return;
         }
 
-        if (operation.isExecuting()) {
+        // A streaming consumer must run alongside its producer, not after it on the same worker.
+        if (executionMode == ExecutionMode.WORK_STEALING && !operation.isStreamingConsumer() && tryContinueOnCurrentWorker(operation)) {
             return;
         }
 
+        readyQueue.offer(operation);
+        dispatchReadyOperations();
+    }
+
+    /**
+     * Queues a batch collected by a batch stage for dispatch.
+     */
+    void dispatchBatch(Operation batch) {
+        batch.markDispatched();
+        assignDispatchOrder(batch);
+        readyQueue.offer(batch);
+        dispatchReadyOperations();
+    }
+
+    /**
+     * Dispatches the failed operation again once the backoff has elapsed. The operation gives its in-flight permit back while it waits,
+     * and its timeouts stop until the next attempt starts.
+     */
+    void scheduleRetry(final Operation operation, long backoff) {
+        operation.notifyAttemptFailed();
+        releaseInFlightPermit(operation);
+        releaseResource(operation);
+        TimeoutScheduler.getInstance().schedule(new Runnable() {
+            @Override
+            public void run() {
+                retryOperation(operation);
+            }
+        }, backoff);
+    }
+
+    void journalDependency(Operation dependent, Operation dependency) {
+        OperationJournal journal = this.journal;
+        if (journal != null && dependency.isJournaled() && dependent.getJournalFactoryName() != null) {
+            journal.journalDependency(dependent, dependency);
+        }
+    }
+
+    void notifyOperationComplete(Operation operation) {
+        releaseInFlightPermit(operation);
+        releaseResource(operation);
+        if (operation.executionStartedAt != 0 && operation.isFinished()) {
+            criticalPathEstimator.record(operation.getOperationType(), System.nanoTime() - operation.executionStartedAt);
+        }
+        if (operation.getDeduplicationKey() != null) {
+            completeFlight(operation);
+        }
+
+        OperationJournal journal = this.journal;
+        if (journal != null && operation.isJournaled()) {
+            journal.journalCompletion(operation);
+        }
+
+        CompletableFuture<Void> drained = null;
+        synchronized (this) {
+            operationList.removeOperation(operation);
+            if (capacity > 0) {
+                notifyAll();
+            }
+            if (!operationList.isEmpty()) {
+                return;
+            }
+
+            // Shut down gracefully, so the threads still returning from finished operations are not interrupted.
+            if (isShutdown || (executorKeepAlive <= 0 && warmThreadCount <= 0)) {
+                shutdownExecutor();
+            }
+
+            drained = drainFuture;
+            drainFuture = null;
+        }
+
+        // Completed outside the lock, as dependent stages run on this thread.
+        if (drained != null) {
+            drained.complete(null);
+        }
+    }
+
+    /**
+     * Registers the operation in the journal along with the dependencies other journaled operations already have on it.
+     */
+    private void journalRegistration(Operation operation) {
+        OperationJournal journal = this.journal;
+        if (journal == null || operation.getJournalFactoryName() == null || !operation.markJournaled()) {
+            return;
+        }
+
+        journal.journalRegistration(operation);
+        for (Operation subscriber : operation.getSubscribers()) {
+            if (subscriber.getJournalFactoryName() != null) {
+                journal.journalDependency(subscriber, operation);
+            }
+        }
+    }
+
+    /**
+     * Returns true, if the asynchronous conditions of the ready operation have been met.
+     * Otherwise starts evaluating them, and executes the operation once they are met or cancels it once one is not.
+     */
+    private boolean hasMetAsyncConditions(Operation operation) {
+        CompletableFuture<Boolean> conditions = operation.evaluateAsyncConditions();
+        if (conditions == null) {
+            return true;
+        }
+
+        conditions.whenComplete((met, failure) -> {
+            if (failure == null && Boolean.TRUE.equals(met)) {
+                operation.markAsyncConditionsMet();
+                executeOperation(operation);
+            } else {
+                operation.cancel();
+            }
+        });
+        return false;
+    }
+
+    /**
+     * Claims the ready operation for dispatch and assigns its position in the ready queue.
+     * Returns false, if the operation has already completed or was dispatched before.
+     */
+    private boolean prepareReadyOperation(Operation operation) {
+        if (operation.isAborted() || operation.isFinished()) {
+            notifyOperationComplete(operation);
+            return false;
+        }
+
+        if (!operation.markDispatched()) {
+            return false;
+        }
+
         if (maxExecutionTime != -1) {
             operation.addObserver(new TimeoutObserver(maxExecutionTime));
         }
 
-        Future operationFuture = executor.submit(operation);
-        operation.setOperationFuture(operationFuture);
+        OperationQueueMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.operationReady(operation);
+        }
+
+        assignDispatchOrder(operation);
+        return true;
     }
 
-    synchronized void notifyOperationComplete(Operation operation) {
-        operationList.removeOperation(operation);
+    private void assignDispatchOrder(Operation operation) {
+        long agingNanos = TimeUnit.MILLISECONDS.toNanos(priorityAgingInterval);
+        operation.dispatchKey = System.nanoTime() - operation.getQueuePriority().getValue() * agingNanos;
 
-        if (operationList.isEmpty() && terminateExecutorAutomatically) {
-            executor.shutdownNow();
+        SchedulingPolicy schedulingPolicy = this.schedulingPolicy;
+        if (schedulingPolicy != SchedulingPolicy.FIFO) {
+            operation.dispatchKey -= criticalPathEstimator.rank(operation, schedulingPolicy == SchedulingPolicy.CRITICAL_PATH);
         }
+        operation.dispatchSequence = dispatchSequence.getAndIncrement();
     }
 
-    private void trackOperation(Operation operation) {
-        if (operationList.containsOperation(operation)) {
+    private void retryOperation(Operation operation) {
+        if (!operation.clearRetryPending() || operation.isFinished() || operation.isAborted()) {
+            return;
+        }
+
+        OperationQueueMetrics metrics = this.metrics;
+        if (metrics != null) {
+            operation.readyAt = System.nanoTime();
+        }
+
+        assignDispatchOrder(operation);
+        if (hasAcquiredResource(operation) && !collectIntoBatch(operation)) {
+            readyQueue.offer(operation);
+            dispatchReadyOperations();
+        }
+    }
+
+    /**
+     * Continues dispatching the operation once it has acquired its resource group, which it had to wait for.
+     * The operation keeps the position in the ready queue it was assigned when it became ready.
+     */
+    void resourceAcquired(Operation operation) {
+        // An operation cancelled while its grant was handed over gives the group back right away.
+        if (operation.isCompleted()) {
+            releaseResource(operation);
             return;
         }
-        operationList.addOperation(operation);
+
+        if (!collectIntoBatch(operation)) {
+            readyQueue.offer(operation);
+            dispatchReadyOperations();
+        }
+    }
+
+    /**
+     * Returns true, if the prepared operation uses no resource group or has acquired it.
+     * Otherwise the operation waits for the group, which hands it back through resourceAcquired().
+     */
+    private boolean hasAcquiredResource(Operation operation) {
+        ResourceGroup resourceGroup = operation.getResourceGroup();
+        if (resourceGroup == null) {
+            return true;
+        }
+        if (!resourceGroup.tryAcquire(operation)) {
+            return false;
+        }
+
+        // The completion of an operation cancelled before the grant could not release the group, so it is released here.
+        if (operation.isCompleted()) {
+            releaseResource(operation);
+            return false;
+        }
+        return true;
+    }
+
+    private void releaseResource(Operation operation) {
+        if (operation.clearResourceHeld()) {
+            operation.getResourceGroup().release(operation);
+        }
+    }
+
+    /**
+     * Hands the prepared operation to the batch stage of its batch type. Returns false, if the operation is not batched.
+     */
+    private boolean collectIntoBatch(Operation operation) {
+        String batchType = operation.getBatchType();
+        BatchStage batchStage = batchType != null ? batchStages.get(batchType) : null;
+        if (batchStage == null) {
+            return false;
+        }
+
+        batchStage.add(operation);
+        return true;
+    }
+
+    private AdmissionResult addOperation(Operation operation, AdmissionPolicy policy) {
+        operation.setOperationQueue(this);
+
+        AdmissionResult result = trackOperation(operation, policy);
+        if (!result.isAdmitted()) {
+            operation.setOperationQueue(null);
+            return result;
+        }
+
+        OperationQueueMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.operationAdded(operation);
+        }
+        journalRegistration(operation);
+
+        if (result == AdmissionResult.RAN_ON_CALLER) {
+            if (!deduplicate(operation) && hasMetAsyncConditions(operation) && prepareReadyOperation(operation) && hasAcquiredResource(operation)
+                    && !collectIntoBatch(operation)) {
+                // The attempt clears the interrupt status of its thread once it returns, which here is the caller's.
+                boolean isCallerInterrupted = Thread.currentThread().isInterrupted();
+                operation.runAttempt();
+                if (isCallerInterrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        } else if (!operation.hasUnfinishedDependencies()) {
+            executeOperation(operation);
+        }
+        return result;
+    }
+
+    /**
+     * Serves the ready operation from the result cache, or attaches it to the in-flight operation with an equal key.
+     * Only ready operations are deduplicated, so a follower never completes before its own dependencies.
+     * Returns false, if the operation has to run itself.
+     */
+    private boolean deduplicate(Operation operation) {
+        Object key = operation.getDeduplicationKey();
+        if (key == null || operation.isCompleted()) {
+            return false;
+        }
+
+        // A leader seen again, once its asynchronous conditions are met, keeps leading its flight.
+        Flight current = flights.get(key);
+        if (current != null && current.leader == operation) {
+            return false;
+        }
+
+        OperationQueueMetrics metrics = this.metrics;
+
+        ResultCache resultCache = this.resultCache;
+        ResultCache.Entry cached = resultCache != null ? resultCache.get(key) : null;
+        if (cached != null) {
+            if (metrics != null) {
+                metrics.deduplicationHit();
+            }
+            if (operation.markDispatched()) {
+                finishWithResult(operation, cached.result);
+            }
+            return true;
+        }
+
+        Flight flight = flights.compute(key, (flightKey, existing) -> existing != null && existing.attach(operation) ? existing : new Flight(operation));
+        if (flight.leader == operation) {
+            if (metrics != null) {
+                metrics.deduplicationMissed();
+            }
+            return false;
+        }
+
+        if (metrics != null) {
+            metrics.deduplicationCoalesced();
+        }
+        // Keeps the follower from being dispatched while it waits for the leader.
+        operation.markDispatched();
+        return true;
+    }
+
+    /**
+     * Completes the operations attached to the completed leader, and caches its result if it finished.
+     */
+    private void completeFlight(Operation operation) {
+        Flight flight = flights.get(operation.getDeduplicationKey());
+        if (flight == null || flight.leader != operation) {
+            return;
+        }
+
+        List<Operation> followers;
+        synchronized (flight) {
+            flight.isCompleted = true;
+            followers = flight.followers;
+        }
+        flights.remove(operation.getDeduplicationKey(), flight);
+
+        Object result = operation instanceof ResultOperation ? ((ResultOperation<?>) operation).peekResult() : null;
+        ResultCache resultCache = this.resultCache;
+        if (resultCache != null && operation.isFinished()) {
+            resultCache.put(operation.getDeduplicationKey(), result);
+        }
+
+        if (followers == null) {
+            return;
+        }
+        for (Operation follower : followers) {
+            if (operation.isFinished()) {
+                finishWithResult(follower, result);
+            } else {
+                follower.abort();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void finishWithResult(Operation operation, Object result) {
+        if (operation instanceof ResultOperation) {
+            ((ResultOperation<Object>) operation).finish(result);
+        } else {
+            operation.finish();
+        }
+    }
+
+    // The executor is checked under the same lock that shuts it down once the queue drains,
+    // so a tracked operation always finds a running executor.
+    private synchronized AdmissionResult trackOperation(Operation operation, AdmissionPolicy policy) {
+        if (isShutdown) {
+            return AdmissionResult.REJECTED;
+        }
+
+        ensureExecutor();
+        if (operationList.containsOperation(operation)) {
+            return AdmissionResult.ACCEPTED;
+        }
+
+        if (policy == AdmissionPolicy.CALLER_RUNS && isAtCapacity(1) && !operation.hasUnfinishedDependencies()) {
+            operationList.addOperation(operation);
+            return AdmissionResult.RAN_ON_CALLER;
+        }
+
+        AdmissionResult result = awaitCapacity(1, policy);
+        if (result == AdmissionResult.ACCEPTED) {
+            ensureExecutor();
+            operationList.addOperation(operation);
+        }
+        return result;
+    }
+
+    private synchronized AdmissionResult trackOperations(Collection<? extends Operation> operations) {
+        if (isShutdown || (capacity > 0 && operations.size() > capacity)) {
+            return AdmissionResult.REJECTED;
+        }
+
+        AdmissionPolicy policy = admissionPolicy == AdmissionPolicy.CALLER_RUNS ? AdmissionPolicy.BLOCK : admissionPolicy;
+        AdmissionResult result = awaitCapacity(operations.size(), policy);
+        if (result != AdmissionResult.ACCEPTED) {
+            return result;
+        }
+
+        ensureExecutor();
+        for (Operation operation : operations) {
+            operationList.addOperation(operation);
+        }
+        return AdmissionResult.ACCEPTED;
+    }
+
+    /**
+     * Waits on the queue monitor, as the policy allows, until the queue has room for the number of operations.
+     * Completing operations notify the monitor.
+     */
+    private AdmissionResult awaitCapacity(int count, AdmissionPolicy policy) {
+        if (!isAtCapacity(count)) {
+            return AdmissionResult.ACCEPTED;
+        }
+
+        if (policy == AdmissionPolicy.REJECT) {
+            return AdmissionResult.REJECTED;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(admissionTimeout);
+        try {
+            while (isAtCapacity(count)) {
+                if (isShutdown) {
+                    return AdmissionResult.REJECTED;
+                }
+                if (policy == AdmissionPolicy.BLOCK_WITH_TIMEOUT) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        return AdmissionResult.TIMED_OUT;
+                    }
+                    wait(remaining);
+                } else {
+                    wait();
+                }
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return AdmissionResult.REJECTED;
+        }
+
+        return AdmissionResult.ACCEPTED;
+    }
+
+    private boolean isAtCapacity(int count) {
+        return capacity > 0 && operationList.size() + count > capacity;
+    }
+
+    private void ensureExecutor() {
+        if (executor == null || executor.isShutdown() || executor.isTerminated()) {
+            initExecutor();
+        }
+    }
+
+    /**
+     * Counts the dependencies each operation has within the graph and peels off the operations whose count drops to zero.
+     * Any operation left over depends on a cycle, which is then located to report the offending path.
+     */
+    private void validateAcyclic(Collection<? extends Operation> operations) {
+        long stamp = GRAPH_STAMP.incrementAndGet();
+        for (Operation operation : operations) {
+            operation.graphStamp = stamp;
+            operation.graphInDegree = 0;
+        }
+
+        for (Operation operation : operations) {
+            for (Operation subscriber : operation.getSubscribers()) {
+                if (subscriber.graphStamp == stamp) {
+                    subscriber.graphInDegree++;
+                }
+            }
+        }
+
+        Operation[] resolved = new Operation[operations.size()];
+        int resolvedCount = 0;
+        for (Operation operation : operations) {
+            if (operation.graphInDegree == 0) {
+                resolved[resolvedCount++] = operation;
+            }
+        }
+
+        for (int i = 0; i < resolvedCount; i++) {
+            for (Operation subscriber : resolved[i].getSubscribers()) {
+                if (subscriber.graphStamp == stamp && --subscriber.graphInDegree == 0) {
+                    resolved[resolvedCount++] = subscriber;
+                }
+            }
+        }
+
+        if (resolvedCount < operations.size()) {
+            List<Operation> unresolved = new ArrayList<>();
+            for (Operation operation : operations) {
+                if (operation.graphInDegree > 0) {
+                    unresolved.add(operation);
+                }
+            }
+            throw new CyclicDependencyException(findCycle(unresolved));
+        }
+    }
+
+    /**
+     * Walks the subscriber edges between the operations depth first, without recursion, and returns the first cycle found.
+     */
+    private static List<Operation> findCycle(Collection<? extends Operation> operations) {
+        Map<Operation, VisitState> states = new IdentityHashMap<>(operations.size());
+        for (Operation operation : operations) {
+            states.put(operation, VisitState.UNVISITED);
+        }
+
+        List<Operation> path = new ArrayList<>();
+        List<Iterator<Operation>> pathSubscribers = new ArrayList<>();
+        for (Operation root : operations) {
+            if (states.get(root) != VisitState.UNVISITED) {
+                continue;
+            }
+
+            states.put(root, VisitState.VISITING);
+            path.add(root);
+            pathSubscribers.add(root.getSubscribers().iterator());
+
+            while (!path.isEmpty()) {
+                int top = path.size() - 1;
+                Iterator<Operation> subscribers = pathSubscribers.get(top);
+                if (!subscribers.hasNext()) {
+                    states.put(path.remove(top), VisitState.VISITED);
+                    pathSubscribers.remove(top);
+                    continue;
+                }
+
+                Operation subscriber = subscribers.next();
+                VisitState state = states.get(subscriber);
+                if (state == VisitState.UNVISITED) {
+                    states.put(subscriber, VisitState.VISITING);
+                    path.add(subscriber);
+                    pathSubscribers.add(subscriber.getSubscribers().iterator());
+                } else if (state == VisitState.VISITING) {
+                    List<Operation> cycle = new ArrayList<>(path.subList(path.indexOf(subscriber), path.size()));
+                    cycle.add(subscriber);
+                    return cycle;
+                }
+            }
+        }
+
+        return new ArrayList<>();
+    }
+
+    /**
+     * Hands the highest priority ready operations to the executor while dispatch slots are available.
+     * Operations cancelled while they waited in the ready queue have already completed, so they give their slot back instead.
+     */
+    private void dispatchReadyOperations() {
+        while (tryAcquireDispatchSlot()) {
+            boolean holdsPermit = maxInFlightOperations > 0;
+            if (holdsPermit && !tryAcquireInFlightPermit()) {
+                dispatchedOperations.decrementAndGet();
+                // A permit released meanwhile could not acquire the slot held here, so it must be picked up here.
+                if (hasInFlightPermits() && !readyQueue.isEmpty()) {
+                    continue;
+                }
+                return;
+            }
+
+            final Operation operation = readyQueue.poll();
+            if (operation == null) {
+                dispatchedOperations.decrementAndGet();
+                if (holdsPermit) {
+                    inFlightOperations.decrementAndGet();
+                }
+                // An operation offered after the poll could not acquire the released slot, so it must be picked up here.
+                if (readyQueue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+
+            if (operation.isCompleted()) {
+                dispatchedOperations.decrementAndGet();
+                if (holdsPermit) {
+                    inFlightOperations.decrementAndGet();
+                }
+                continue;
+            }
+
+            if (holdsPermit) {
+                markInFlight(operation);
+            }
+            try {
+                executor.execute(newDispatchTask(operation));
+            } catch (RejectedExecutionException exception) {
+                // The executor was shut down once the queue drained, or a custom executor refused the task.
+                // The slot is given back, and cancelling the operation releases its permit and its dependents.
+                dispatchedOperations.decrementAndGet();
+                operation.cancel();
+            }
+        }
+    }
+
+    private Runnable newDispatchTask(final Operation operation) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (executionMode == ExecutionMode.WORK_STEALING) {
+                        runWithContinuations(operation);
+                    } else {
+                        operation.runAttempt();
+                    }
+                } finally {
+                    dispatchedOperations.decrementAndGet();
+                    dispatchReadyOperations();
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs the operation followed by the dependents it made ready, reusing the dispatch slot of the worker.
+     */
+    private void runWithContinuations(Operation operation) {
+        Continuation context = continuation.get();
+        context.isActive = true;
+        context.depth = 0;
+
+        try {
+            Operation next = operation;
+            while (next != null) {
+                next.runAttempt();
+                next = context.operation;
+                context.operation = null;
+                context.depth++;
+            }
+        } finally {
+            context.isActive = false;
+            Operation pending = context.operation;
+            context.operation = null;
+            // An attempt threw before the dependent it made ready could run. The dependent is already dispatched and holds its permit,
+            // so it is forked as a task of its own, taking over the dispatch slot this task gives back.
+            if (pending != null) {
+                dispatchedOperations.incrementAndGet();
+                ForkJoinTask.adapt(newDispatchTask(pending)).fork();
+            }
+        }
+    }
+
+    /**
+     * Keeps a newly ready operation on the worker that completed its last dependency.
+     * The first one runs right after the current operation, others are pushed to the worker's local deque for idle workers to steal.
+     */
+    private boolean tryContinueOnCurrentWorker(Operation operation) {
+        Thread currentThread = Thread.currentThread();
+        if (!(currentThread instanceof ForkJoinWorkerThread) || ((ForkJoinWorkerThread) currentThread).getPool() != executor) {
+            return false;
+        }
+
+        Continuation context = continuation.get();
+        if (!context.isActive) {
+            return false;
+        }
+
+        boolean holdsPermit = maxInFlightOperations > 0;
+        if (holdsPermit && !tryAcquireInFlightPermit()) {
+            return false;
+        }
+
+        if (context.operation == null && context.depth < MAX_INLINE_DEPTH) {
+            context.operation = operation;
+        } else if (tryAcquireDispatchSlot()) {
+            ForkJoinTask.adapt(newDispatchTask(operation)).fork();
+        } else {
+            if (holdsPermit) {
+                inFlightOperations.decrementAndGet();
+            }
+            return false;
+        }
+
+        if (holdsPermit) {
+            markInFlight(operation);
+        }
+        return true;
+    }
+
+    private boolean tryAcquireDispatchSlot() {
+        while (true) {
+            int dispatched = dispatchedOperations.get();
+            if (maxConcurrentOperations > 0 && dispatched >= maxConcurrentOperations) {
+                return false;
+            }
+
+            if (dispatchedOperations.compareAndSet(dispatched, dispatched + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Takes an in-flight permit. The permit is handed to an operation through markInFlight.
+     */
+    private boolean tryAcquireInFlightPermit() {
+        while (true) {
+            int maxInFlight = maxInFlightOperations;
+            int inFlight = inFlightOperations.get();
+            if (maxInFlight > 0 && inFlight >= maxInFlight) {
+                return false;
+            }
+
+            if (inFlightOperations.compareAndSet(inFlight, inFlight + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean hasInFlightPermits() {
+        int maxInFlight = maxInFlightOperations;
+        return maxInFlight <= 0 || inFlightOperations.get() < maxInFlight;
+    }
+
+    /**
+     * Hands the acquired permit to the operation, which holds it until it finishes or aborts.
+     * An operation cancelled while it waited in the ready queue has already completed, so the permit is released right away.
+     */
+    private void markInFlight(Operation operation) {
+        operation.markInFlight();
+        if (operation.isCompleted()) {
+            releaseInFlightPermit(operation);
+        }
+    }
+
+    void releaseInFlightPermit(Operation operation) {
+        if (operation.clearInFlight()) {
+            inFlightOperations.decrementAndGet();
+            dispatchReadyOperations();
+        }
+    }
+
+    // The previous dispatcher is closed outside the lock, as its listeners may call back into the queue while it drains.
+    // It stays installed until it has drained, and in the meantime delivers the events published to it in order,
+    // so no event is delivered ahead of the earlier events of its operation still in the buffer.
+    private void replaceEventDispatcher(EventDispatcher eventDispatcher) {
+        EventDispatcher previous;
+        synchronized (this) {
+            previous = this.eventDispatcher;
+        }
+
+        while (true) {
+            if (previous != null) {
+                previous.close();
+            }
+
+            synchronized (this) {
+                if (this.eventDispatcher == previous) {
+                    this.eventDispatcher = eventDispatcher;
+                    return;
+                }
+                previous = this.eventDispatcher;
+            }
+        }
+    }
+
+    private void shutdownExecutor() {
+        if (terminateExecutorAutomatically && executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private long threadKeepAlive() {
+        return executorKeepAlive > 0 ? executorKeepAlive : DEFAULT_THREAD_KEEP_ALIVE;
     }
 
     private synchronized void initExecutor() {
-        this.executor = Executors.newFixedThreadPool(maxConcurrentOperations);
+        switch (executionMode) {
+            case VIRTUAL_THREADS:
+                this.executor = newVirtualThreadExecutor();
+                break;
+            case WORK_STEALING:
+                this.executor = new ForkJoinPool(maxConcurrentOperations, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false,
+                        Math.max(Math.min(warmThreadCount, maxConcurrentOperations), 1), maxConcurrentOperations + MAX_SPARE_WORK_STEALING_THREADS, 1,
+                        null, threadKeepAlive(), TimeUnit.MILLISECONDS);
+                break;
+            default:
+                this.executor = new OperationThreadPool(name, warmThreadCount, maxConcurrentOperations, threadKeepAlive());
+                break;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) findVirtualThreadExecutorFactory().invoke(null);
+        } catch (ReflectiveOperationException exception) {
+            throw new IllegalStateException("Unable to create a virtual thread executor.", exception);
+        }
+    }
+
+    // Looked up reflectively, so the library still builds and runs on Java versions without virtual threads.
+    private static Method findVirtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * An operation in flight with a deduplication key, along with the operations attached to it.
+     * Once completed, the flight takes no more followers and the next operation with the key starts a new one.
+     */
+    private static final class Flight {
+        private final Operation leader;
+        private List<Operation> followers = null;
+        private boolean isCompleted = false;
+
+        private Flight(Operation leader) {
+            this.leader = leader;
+        }
+
+        /**
+         * Attaches the follower. Returns false, if the leader has already completed.
+         */
+        private synchronized boolean attach(Operation follower) {
+            if (isCompleted) {
+                return false;
+            }
+
+            if (followers == null) {
+                followers = new ArrayList<>(2);
+            }
+            followers.add(follower);
+            return true;
+        }
+    }
+
+    private static final class Continuation {
+        private boolean isActive = false;
+        private int depth = 0;
+        private Operation operation = null;
+    }
+
+    private enum VisitState {
+        UNVISITED,
+        VISITING,
+        VISITED
     }
 }
\ No newline at end of file
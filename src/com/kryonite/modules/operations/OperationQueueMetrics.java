@@ -0,0 +1,231 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operation queue metrics count the operations at each stage of their lifecycle and record how long they spend in each stage:
+ * waiting on dependencies, waiting in the ready queue and executing.
+ * All the counters are striped, so recording from many worker threads does not become a contention point.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class OperationQueueMetrics implements OperationQueueMetricsMBean {
+    private final OperationQueue operationQueue;
+    private final LongAdder addedOperations = new LongAdder();
+    private final LongAdder startedOperations = new LongAdder();
+    private final LongAdder finishedOperations = new LongAdder();
+    private final LongAdder abortedOperations = new LongAdder();
+    private final LongAdder cancelledOperations = new LongAdder();
+    private final LongAdder retriedOperations = new LongAdder();
+    private final LongAdder runningOperations = new LongAdder();
+    private final LongAdder deduplicationHits = new LongAdder();
+    private final LongAdder deduplicationCoalesced = new LongAdder();
+    private final LongAdder deduplicationMisses = new LongAdder();
+    private final LatencyHistogram dependencyWait = new LatencyHistogram();
+    private final LatencyHistogram readyWait = new LatencyHistogram();
+    private final LatencyHistogram executionTime = new LatencyHistogram();
+
+    OperationQueueMetrics(OperationQueue operationQueue) {
+        this.operationQueue = operationQueue;
+    }
+
+    @Override
+    public String getQueueName() {
+        return operationQueue.getName();
+    }
+
+    @Override
+    public long getAddedOperations() {
+        return addedOperations.sum();
+    }
+
+    @Override
+    public long getStartedOperations() {
+        return startedOperations.sum();
+    }
+
+    @Override
+    public long getFinishedOperations() {
+        return finishedOperations.sum();
+    }
+
+    @Override
+    public long getAbortedOperations() {
+        return abortedOperations.sum();
+    }
+
+    @Override
+    public long getCancelledOperations() {
+        return cancelledOperations.sum();
+    }
+
+    @Override
+    public long getRetriedOperations() {
+        return retriedOperations.sum();
+    }
+
+    @Override
+    public int getQueuedOperations() {
+        return operationQueue.getOperationCount();
+    }
+
+    @Override
+    public int getReadyOperations() {
+        return operationQueue.getReadyOperationCount();
+    }
+
+    @Override
+    public long getRunningOperations() {
+        return runningOperations.sum();
+    }
+
+    @Override
+    public long getDependencyWaitP50() {
+        return toMicros(dependencyWait.getPercentile(0.50));
+    }
+
+    @Override
+    public long getDependencyWaitP99() {
+        return toMicros(dependencyWait.getPercentile(0.99));
+    }
+
+    @Override
+    public long getDependencyWaitMax() {
+        return toMicros(dependencyWait.getMax());
+    }
+
+    @Override
+    public long getReadyWaitP50() {
+        return toMicros(readyWait.getPercentile(0.50));
+    }
+
+    @Override
+    public long getReadyWaitP99() {
+        return toMicros(readyWait.getPercentile(0.99));
+    }
+
+    @Override
+    public long getReadyWaitMax() {
+        return toMicros(readyWait.getMax());
+    }
+
+    @Override
+    public long getExecutionTimeMean() {
+        return toMicros(executionTime.getMean());
+    }
+
+    @Override
+    public long getExecutionTimeP50() {
+        return toMicros(executionTime.getPercentile(0.50));
+    }
+
+    @Override
+    public long getExecutionTimeP99() {
+        return toMicros(executionTime.getPercentile(0.99));
+    }
+
+    @Override
+    public long getExecutionTimeMax() {
+        return toMicros(executionTime.getMax());
+    }
+
+    @Override
+    public long getDeduplicationHits() {
+        return deduplicationHits.sum();
+    }
+
+    @Override
+    public long getDeduplicationCoalesced() {
+        return deduplicationCoalesced.sum();
+    }
+
+    @Override
+    public long getDeduplicationMisses() {
+        return deduplicationMisses.sum();
+    }
+
+    @Override
+    public void reset() {
+        addedOperations.reset();
+        startedOperations.reset();
+        finishedOperations.reset();
+        abortedOperations.reset();
+        cancelledOperations.reset();
+        retriedOperations.reset();
+        dependencyWait.reset();
+        readyWait.reset();
+        executionTime.reset();
+        deduplicationHits.reset();
+        deduplicationCoalesced.reset();
+        deduplicationMisses.reset();
+    }
+
+    void operationAdded(Operation operation) {
+        operation.addedAt = System.nanoTime();
+        addedOperations.increment();
+    }
+
+    void operationReady(Operation operation) {
+        operation.readyAt = System.nanoTime();
+        if (operation.addedAt != 0) {
+            dependencyWait.record(operation.readyAt - operation.addedAt);
+        }
+    }
+
+    void operationStarted(Operation operation) {
+        operation.startedAt = System.nanoTime();
+        if (operation.readyAt != 0) {
+            readyWait.record(operation.startedAt - operation.readyAt);
+        }
+        startedOperations.increment();
+        runningOperations.increment();
+    }
+
+    void operationFinished(Operation operation) {
+        finishedOperations.increment();
+        operationCompleted(operation);
+    }
+
+    void operationAborted(Operation operation) {
+        abortedOperations.increment();
+        operationCompleted(operation);
+    }
+
+    void operationCancelled(Operation operation) {
+        cancelledOperations.increment();
+    }
+
+    // The failed attempt no longer counts as running. The next attempt is recorded when it starts.
+    void operationRetried(Operation operation) {
+        retriedOperations.increment();
+        if (operation.startedAt != 0) {
+            operation.startedAt = 0;
+            runningOperations.decrement();
+        }
+    }
+
+    void deduplicationHit() {
+        deduplicationHits.increment();
+    }
+
+    void deduplicationCoalesced() {
+        deduplicationCoalesced.increment();
+    }
+
+    void deduplicationMissed() {
+        deduplicationMisses.increment();
+    }
+
+    private void operationCompleted(Operation operation) {
+        if (operation.startedAt != 0) {
+            executionTime.record(System.nanoTime() - operation.startedAt);
+            runningOperations.decrement();
+        }
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,58 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Management interface of the operation queue metrics, published through JMX.
+ * Durations are reported in microseconds.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public interface OperationQueueMetricsMBean {
+    String getQueueName();
+
+    long getAddedOperations();
+
+    long getStartedOperations();
+
+    long getFinishedOperations();
+
+    long getAbortedOperations();
+
+    long getCancelledOperations();
+
+    long getRetriedOperations();
+
+    int getQueuedOperations();
+
+    int getReadyOperations();
+
+    long getRunningOperations();
+
+    long getDependencyWaitP50();
+
+    long getDependencyWaitP99();
+
+    long getDependencyWaitMax();
+
+    long getReadyWaitP50();
+
+    long getReadyWaitP99();
+
+    long getReadyWaitMax();
+
+    long getExecutionTimeMean();
+
+    long getExecutionTimeP50();
+
+    long getExecutionTimeP99();
+
+    long getExecutionTimeMax();
+
+    long getDeduplicationHits();
+
+    long getDeduplicationCoalesced();
+
+    long getDeduplicationMisses();
+
+    void reset();
+}
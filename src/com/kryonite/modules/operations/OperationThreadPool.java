@@ -0,0 +1,75 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.RejectedExecutionHandler;
+
+/**
+ * A thread pool that grows up to the maximum thread count on demand and shrinks back to its warm threads once idle.
+ * A plain ThreadPoolExecutor only adds threads above its core size when its queue is full, so tasks are offered to the queue
+ * only when an idle thread takes them right away. Otherwise the pool starts a thread, and once it has the maximum
+ * thread count the task is queued for the next free thread.
+ */
+class OperationThreadPool extends ThreadPoolExecutor {
+
+    OperationThreadPool(String name, int warmThreads, int maxThreads, long keepAlive) {
+        super(Math.min(warmThreads, maxThreads), maxThreads, Math.max(keepAlive, 1), TimeUnit.MILLISECONDS,
+                new HandOffQueue(), new WorkerThreadFactory(name), new QueueWhenSaturated());
+        prestartAllCoreThreads();
+    }
+
+    private static final class HandOffQueue extends LinkedTransferQueue<Runnable> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public boolean offer(Runnable task) {
+            return tryTransfer(task);
+        }
+
+        private void enqueue(Runnable task) {
+            super.offer(task);
+        }
+    }
+
+    // Runs once the pool already has its maximum thread count. A thread that timed out in the meantime
+    // may have left without seeing the queued task, so the task is executed again if the pool has room by now.
+    // It is retried only once: a second rejection means a thread is being added, and that thread takes the queued task.
+    private static final class QueueWhenSaturated implements RejectedExecutionHandler {
+        private final ThreadLocal<Boolean> isRetrying = new ThreadLocal<>();
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Operation thread pool has been shut down.");
+            }
+
+            ((HandOffQueue) executor.getQueue()).enqueue(task);
+            if (isRetrying.get() == null && executor.getPoolSize() < executor.getMaximumPoolSize() && executor.remove(task)) {
+                isRetrying.set(Boolean.TRUE);
+                try {
+                    executor.execute(task);
+                } finally {
+                    isRetrying.remove();
+                }
+            }
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger threadSequence = new AtomicInteger(0);
+
+        private WorkerThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            return new Thread(task, name + "-worker-" + threadSequence.incrementAndGet());
+        }
+    }
+}
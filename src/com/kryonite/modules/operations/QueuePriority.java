@@ -0,0 +1,29 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Queue priority decides the order in which an operation queue dispatches its ready operations.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public enum QueuePriority {
+    VERY_LOW(-8),
+    LOW(-4),
+    NORMAL(0),
+    HIGH(4),
+    VERY_HIGH(8);
+
+    private final int value;
+
+    QueuePriority(int value) {
+        this.value = value;
+    }
+
+    /**
+     * Returns the relative weight of the priority. Each unit is worth one aging interval of the queue.
+     * @return
+     */
+    public int getValue() {
+        return value;
+    }
+}
@@ -0,0 +1,138 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+
+/**
+ * Resource group limits how many operations use a shared resource at once, such as a database or a file,
+ * across every queue the operations run on. An operation uses the resource either shared, alongside up to the concurrency limit
+ * of other shared users, or exclusively, alone.
+ *
+ * An operation acquires its resource group once it is ready, before it enters the ready queue of its queue, and releases it when it completes.
+ * An operation that cannot acquire the group waits in line without holding a worker thread or a dispatch slot,
+ * and is handed back to its queue once the group has room for it. Operations are granted in the order they arrived,
+ * so an exclusive user is not starved by a stream of shared ones.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class ResourceGroup {
+    private final String name;
+    private final int maxConcurrentOperations;
+    private final ArrayDeque<Operation> waitingOperations = new ArrayDeque<>();
+    private int activeOperations = 0;
+    private boolean isHeldExclusively = false;
+
+    /**
+     * Creates a resource group.
+     * @param name - Name of the resource, used to identify the group.
+     * @param maxConcurrentOperations - Maximum number of operations using the resource at once.
+     */
+    public ResourceGroup(String name, int maxConcurrentOperations) {
+        this.name = name;
+        this.maxConcurrentOperations = Math.max(maxConcurrentOperations, 1);
+    }
+
+    /**
+     * Returns the name of the resource.
+     * @return
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the maximum number of operations using the resource at once.
+     * @return
+     */
+    public int getMaxConcurrentOperations() {
+        return maxConcurrentOperations;
+    }
+
+    /**
+     * Returns the number of operations currently holding the resource.
+     * @return
+     */
+    public synchronized int getActiveOperationCount() {
+        return activeOperations;
+    }
+
+    /**
+     * Returns the number of operations waiting for the resource.
+     * @return
+     */
+    public synchronized int getWaitingOperationCount() {
+        return waitingOperations.size();
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceGroup(" + name + ")";
+    }
+
+    /**
+     * Acquires the group for the operation. Returns false, if the operation has to wait, in which case
+     * its queue is handed the operation once it acquires the group.
+     */
+    boolean tryAcquire(Operation operation) {
+        synchronized (this) {
+            if (!waitingOperations.isEmpty() || !canGrant(operation)) {
+                waitingOperations.add(operation);
+                return false;
+            }
+            grant(operation);
+        }
+        return true;
+    }
+
+    /**
+     * Releases the group held by the operation and hands the waiting operations that now fit back to their queues.
+     */
+    void release(Operation operation) {
+        List<Operation> grantedOperations = null;
+        synchronized (this) {
+            activeOperations--;
+            isHeldExclusively = false;
+
+            Operation next;
+            while ((next = waitingOperations.peek()) != null) {
+                // Operations cancelled while waiting are dropped.
+                if (next.isCompleted()) {
+                    waitingOperations.poll();
+                    continue;
+                }
+                if (!canGrant(next)) {
+                    break;
+                }
+
+                waitingOperations.poll();
+                grant(next);
+                if (grantedOperations == null) {
+                    grantedOperations = new ArrayList<>(2);
+                }
+                grantedOperations.add(next);
+            }
+        }
+
+        // Handed over outside the lock, as the queues may release the group again right away.
+        if (grantedOperations != null) {
+            for (Operation granted : grantedOperations) {
+                granted.getOperationQueue().resourceAcquired(granted);
+            }
+        }
+    }
+
+    private boolean canGrant(Operation operation) {
+        if (operation.usesResourceExclusively()) {
+            return activeOperations == 0;
+        }
+        return !isHeldExclusively && activeOperations < maxConcurrentOperations;
+    }
+
+    private void grant(Operation operation) {
+        activeOperations++;
+        isHeldExclusively = operation.usesResourceExclusively();
+        operation.markResourceHeld();
+    }
+}
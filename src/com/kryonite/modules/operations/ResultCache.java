@@ -0,0 +1,62 @@
+package com.kryonite.modules.operations;
+
+import java.util.Map;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of the results of finished operations, keyed by their deduplication keys.
+ * Entries expire once their time to live has elapsed, and the least recently used entry is evicted once the cache is full.
+ */
+class ResultCache {
+    private final int maxEntries;
+    private final long timeToLive;
+    private final LinkedHashMap<Object, Entry> entries;
+
+    ResultCache(final int maxEntries, long timeToLive) {
+        this.maxEntries = maxEntries;
+        this.timeToLive = TimeUnit.MILLISECONDS.toNanos(timeToLive);
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached entry for the key, or null if there is none or it has expired.
+     */
+    synchronized Entry get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.cachedAt > timeToLive) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    synchronized void put(Object key, Object result) {
+        if (maxEntries > 0) {
+            entries.put(key, new Entry(result, System.nanoTime()));
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    static final class Entry {
+        final Object result;
+        private final long cachedAt;
+
+        private Entry(Object result, long cachedAt) {
+            this.result = result;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
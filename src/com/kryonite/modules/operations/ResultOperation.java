@@ -0,0 +1,73 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Result operation is an operation that produces a value.
+ * The result is published when the operation finishes, so dependents can read it with getResult() as soon as they begin execution,
+ * and callers outside the queue can compose on it through toCompletableFuture().
+ *
+ * @param <T> - Type of the result.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public abstract class ResultOperation<T> extends Operation {
+    private volatile T result = null;
+    private final CompletableFuture<T> resultFuture = new CompletableFuture<>();
+
+    /**
+     * Sets the result and finishes the operation.
+     * @param result
+     */
+    public void finish(T result) {
+        setResult(result);
+        finish();
+    }
+
+    /**
+     * Sets the result without finishing the operation, for operations that are auto finished by the queue.
+     * The result is ignored, if the operation has already completed.
+     * @param result
+     */
+    protected void setResult(T result) {
+        if (!isFinished() && !isAborted()) {
+            this.result = result;
+        }
+    }
+
+    /**
+     * Returns the result of the operation, or null if it has not finished.
+     * @return
+     */
+    public T getResult() {
+        return isFinished() ? result : null;
+    }
+
+    /**
+     * Returns a future that completes with the result when the operation finishes,
+     * or exceptionally with a CancellationException when the operation is aborted or cancelled.
+     * Completing the returned future does not affect the operation.
+     * @return
+     */
+    public CompletableFuture<T> toCompletableFuture() {
+        return resultFuture.thenApply(value -> value);
+    }
+
+    /**
+     * Returns the result regardless of whether the operation has finished.
+     */
+    T peekResult() {
+        return result;
+    }
+
+    @Override
+    void operationDidComplete() {
+        if (isFinished()) {
+            resultFuture.complete(result);
+        } else {
+            resultFuture.completeExceptionally(new CancellationException("Operation " + getOperationId() + " was aborted."));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy decides how often a failed operation is executed again and how long it waits before each retry.
+ * The backoff grows exponentially from the initial backoff up to the maximum backoff, and a random part of it is shaved off
+ * so that operations failing together do not retry in lockstep.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public class RetryPolicy {
+    private final int maxAttempts;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private double multiplier = 2.0;
+    private double jitter = 0.5;
+
+    /**
+     * Creates a retry policy.
+     * @param maxAttempts - Maximum number of executions, including the first one.
+     * @param initialBackoff - Backoff before the first retry, in milliseconds.
+     * @param maxBackoff - Upper bound on the backoff, in milliseconds.
+     */
+    public RetryPolicy(int maxAttempts, long initialBackoff, long maxBackoff) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+    }
+
+    /**
+     * Sets the factor the backoff grows by with each retry. Defaults to 2.
+     * @param multiplier
+     */
+    public void setMultiplier(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * Sets the fraction of the backoff that is randomized. Zero waits exactly the backoff, one waits anywhere between zero and the backoff.
+     * Defaults to 0.5.
+     * @param jitter
+     */
+    public void setJitter(double jitter) {
+        this.jitter = Math.min(Math.max(jitter, 0), 1);
+    }
+
+    /**
+     * Returns the maximum number of executions, including the first one.
+     * @return
+     */
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * Returns the backoff before the specified retry, in milliseconds, with the jitter applied.
+     * @param retry - Number of the retry, starting at one.
+     * @return
+     */
+    public long getBackoff(int retry) {
+        double backoff = Math.min(initialBackoff * Math.pow(multiplier, retry - 1), maxBackoff);
+        return (long) (backoff * (1 - jitter * ThreadLocalRandom.current().nextDouble()));
+    }
+}
@@ -0,0 +1,28 @@
+package com.kryonite.modules.operations;
+
+/**
+ * Scheduling policy decides in which order an operation queue dispatches the operations that are ready.
+ * Every policy respects the priority and aging of the operations. The graph-aware policies additionally move an operation ahead
+ * by the amount of work that depends on it, as if it had been ready that much longer.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+public enum SchedulingPolicy {
+    /**
+     * Ready operations are dispatched in the order they became ready.
+     */
+    FIFO,
+
+    /**
+     * Ready operations with the longest chain of dependents behind them are dispatched first.
+     * Every operation on the chain counts as the default execution time estimate.
+     */
+    DOWNSTREAM_DEPTH,
+
+    /**
+     * Ready operations with the longest estimated critical path behind them are dispatched first.
+     * Each operation on the path counts as the moving average of the execution times recorded for its operation type.
+     */
+    CRITICAL_PATH
+}
@@ -0,0 +1,111 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A lock-free stack of the operations that subscribe to the completion of an operation.
+ * Once closed, every subscriber is handed out exactly once and later subscriptions are refused.
+ */
+class SubscriberStack {
+    /**
+     * A stack that is already closed, shared by the operations that completed without any subscriber.
+     */
+    static final SubscriberStack CLOSED_STACK = new SubscriberStack();
+
+    private static final Node CLOSED = new Node(null, null);
+    private static final AtomicReferenceFieldUpdater<SubscriberStack, Node> HEAD =
+            AtomicReferenceFieldUpdater.newUpdater(SubscriberStack.class, Node.class, "head");
+
+    static {
+        CLOSED_STACK.head = CLOSED;
+    }
+
+    private volatile Node head = null;
+
+    /**
+     * Pushes the operation onto the stack. Returns false, if the stack is already closed.
+     */
+    public boolean push(Operation operation) {
+        while (true) {
+            Node current = head;
+            if (current == CLOSED) {
+                return false;
+            }
+
+            if (HEAD.compareAndSet(this, current, new Node(operation, current))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Removes a single subscription of the operation. Returns false, if it was not found or was already handed out.
+     */
+    public boolean remove(Operation operation) {
+        for (Node node = head; node != null && node != CLOSED; node = node.next) {
+            if (node.operation == operation && node.claim()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Closes the stack and returns the subscribers that were not removed.
+     */
+    public List<Operation> close() {
+        Node node = HEAD.getAndSet(this, CLOSED);
+        if (node == CLOSED) {
+            return new ArrayList<>(0);
+        }
+
+        List<Operation> operations = new ArrayList<>();
+        for (; node != null; node = node.next) {
+            if (node.claim()) {
+                operations.add(node.operation);
+            }
+        }
+
+        return operations;
+    }
+
+    /**
+     * Returns the current subscribers without closing the stack.
+     */
+    public List<Operation> getOperations() {
+        List<Operation> operations = new ArrayList<>();
+        for (Node node = head; node != null && node != CLOSED; node = node.next) {
+            if (node.claimed == 0) {
+                operations.add(node.operation);
+            }
+        }
+
+        return operations;
+    }
+
+    public boolean isClosed() {
+        return head == CLOSED;
+    }
+
+    private static final class Node {
+        private static final AtomicIntegerFieldUpdater<Node> CLAIMED =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "claimed");
+
+        private final Operation operation;
+        private final Node next;
+        private volatile int claimed = 0;
+
+        private Node(Operation operation, Node next) {
+            this.operation = operation;
+            this.next = next;
+        }
+
+        private boolean claim() {
+            return CLAIMED.compareAndSet(this, 0, 1);
+        }
+    }
+}
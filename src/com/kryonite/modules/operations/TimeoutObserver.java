@@ -1,19 +1,17 @@
 package com.kryonite.modules.operations;
 
-import java.util.Timer;
-import java.util.TimerTask;
-
 /**
  * A convenience observer class that times out the operations if it executes more than the allotted time.
+ * Timeouts are tracked by a timing wheel shared across all operations, so no thread is created per observer.
  *
  * @author  Vaibhav Dwivedi
  * @version 1.0
  */
 public class TimeoutObserver extends OperationObserver {
-    private boolean isOperationComplete = false;
+    private volatile boolean isOperationComplete = false;
+    private volatile TimeoutScheduler.Timeout timeout = null;
 
     private final long delay;
-    private final Timer timer;
 
     /**
      * Creates a timeout observer with the specified delay.
@@ -21,18 +19,23 @@ public class TimeoutObserver extends OperationObserver {
      */
     public TimeoutObserver(long delay) {
         this.delay = delay;
-        this.timer = new Timer();
     }
 
     @Override
     public void operationDidStart() {
-        timer.schedule(new TimerTask() {
+        // A retried operation starts again, and each attempt gets the full delay.
+        TimeoutScheduler.Timeout previousTimeout = timeout;
+        if (previousTimeout != null) {
+            previousTimeout.cancel();
+        }
+
+        final Operation timedOperation = operation;
+        timeout = TimeoutScheduler.getInstance().schedule(new Runnable() {
             @Override
             public void run() {
-                if (operation != null && !isOperationComplete && !operation.isAborted() && !operation.isFinished()) {
-                    operation.cancel();
+                if (timedOperation != null && !isOperationComplete && !timedOperation.isAborted() && !timedOperation.isFinished()) {
+                    timedOperation.cancel();
                 }
-                operation = null;
             }
         }, delay);
     }
@@ -47,10 +50,26 @@ public class TimeoutObserver extends OperationObserver {
         cancelTimer();
     }
 
+    // The backoff before the next attempt is not execution time, so the timer of the failed attempt stops here and the next start arms a new one.
+    @Override
+    void attemptDidFail() {
+        TimeoutScheduler.Timeout attemptTimeout = timeout;
+        if (attemptTimeout != null) {
+            attemptTimeout.cancel();
+        }
+    }
+
+    // Timers start and stop with the execution itself, so they are never deferred.
+    @Override
+    boolean isNotifiedInline() {
+        return true;
+    }
+
     private void cancelTimer() {
         isOperationComplete = true;
-        timer.cancel();
-        timer.purge();
+        if (timeout != null) {
+            timeout.cancel();
+        }
         operation = null;
     }
 }
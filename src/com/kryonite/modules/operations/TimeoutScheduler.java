@@ -0,0 +1,237 @@
+package com.kryonite.modules.operations;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Timeout scheduler is a hashed timing wheel shared by all the timeouts in the process.
+ * A single daemon thread advances the wheel, so scheduling or cancelling a timeout is O(1) and never creates a thread.
+ * The thread parks while no timeouts are pending.
+ *
+ * @author  Vaibhav Dwivedi
+ * @version 1.0
+ */
+final class TimeoutScheduler {
+    private static final long TICK_DURATION = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingTimeouts = new AtomicInteger(0);
+    private final Thread workerThread;
+
+    private long startTime;
+    private long tick;
+
+    private TimeoutScheduler() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new Bucket();
+        }
+
+        workerThread = new Thread(this::runWorker, "operation-timeout-scheduler");
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    /**
+     * Returns the scheduler shared by all the operations.
+     * @return
+     */
+    static TimeoutScheduler getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Schedules the task to run on the scheduler thread once the delay has elapsed.
+     * Tasks must be short, as they delay every other timeout expiring in the same tick.
+     * @param task
+     * @param delay - Delay in milliseconds.
+     * @return
+     */
+    Timeout schedule(Runnable task, long delay) {
+        Timeout timeout = new Timeout(this, task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(delay, 0)));
+        scheduledTimeouts.add(timeout);
+
+        if (pendingTimeouts.getAndIncrement() == 0) {
+            LockSupport.unpark(workerThread);
+        }
+
+        return timeout;
+    }
+
+    private void runWorker() {
+        resetWheel();
+
+        while (true) {
+            if (pendingTimeouts.get() == 0) {
+                LockSupport.park(this);
+                resetWheel();
+                continue;
+            }
+
+            waitForNextTick();
+            removeCancelledTimeouts();
+            transferScheduledTimeouts();
+            wheel[(int) (tick & WHEEL_MASK)].expireTimeouts();
+            tick++;
+        }
+    }
+
+    private void resetWheel() {
+        startTime = System.nanoTime();
+        tick = 0;
+    }
+
+    private void waitForNextTick() {
+        long deadline = startTime + (tick + 1) * TICK_DURATION;
+
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                pendingTimeouts.decrementAndGet();
+            }
+        }
+    }
+
+    private void transferScheduledTimeouts() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            Timeout timeout = scheduledTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+
+            if (timeout.isCancelled()) {
+                pendingTimeouts.decrementAndGet();
+                continue;
+            }
+
+            long calculatedTick = (timeout.deadline - startTime) / TICK_DURATION;
+            timeout.remainingRounds = (calculatedTick - tick) / WHEEL_SIZE;
+            wheel[(int) (Math.max(calculatedTick, tick) & WHEEL_MASK)].add(timeout);
+        }
+    }
+
+    /**
+     * A handle to a scheduled task that can be cancelled before it runs.
+     */
+    static final class Timeout {
+        private static final int STATE_SCHEDULED = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private final TimeoutScheduler scheduler;
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state = new AtomicInteger(STATE_SCHEDULED);
+
+        // Only accessed by the worker thread.
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout previous;
+
+        private Timeout(TimeoutScheduler scheduler, Runnable task, long deadline) {
+            this.scheduler = scheduler;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout. Returns false, if the task has already run or was cancelled before.
+         * @return
+         */
+        boolean cancel() {
+            if (!state.compareAndSet(STATE_SCHEDULED, STATE_CANCELLED)) {
+                return false;
+            }
+
+            scheduler.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(STATE_SCHEDULED, STATE_EXPIRED)) {
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable throwable) {
+                Thread currentThread = Thread.currentThread();
+                currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, throwable);
+            }
+        }
+    }
+
+    private final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.previous = tail;
+                tail = timeout;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.previous != null) {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.previous = timeout.previous;
+            }
+            if (timeout == head) {
+                head = timeout.next;
+            }
+            if (timeout == tail) {
+                tail = timeout.previous;
+            }
+
+            timeout.next = null;
+            timeout.previous = null;
+            timeout.bucket = null;
+        }
+
+        private void expireTimeouts() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    pendingTimeouts.decrementAndGet();
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private static final class Holder {
+        private static final TimeoutScheduler INSTANCE = new TimeoutScheduler();
+    }
+}
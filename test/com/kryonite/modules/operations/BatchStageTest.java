@@ -0,0 +1,71 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchStageTest {
+    @Test
+    void batchHoldsItsPermitUntilMembersFinishAsynchronously() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(2);
+        queue.setMaxInFlightOperations(1);
+        List<Operation> executedMembers = new ArrayList<>();
+        CountDownLatch batchExecuted = new CountDownLatch(1);
+        // Returns without finishing its members, which finish later from the test thread.
+        queue.registerBatchExecutor("batch", new BatchExecutor() {
+            @Override
+            protected void executeBatch(List<Operation> operations) {
+                synchronized (executedMembers) {
+                    executedMembers.addAll(operations);
+                }
+                batchExecuted.countDown();
+            }
+        }, 2, 0);
+
+        Operation first = new BatchedOperation();
+        Operation second = new BatchedOperation();
+        CountDownLatch laterStarted = new CountDownLatch(1);
+        Operation later = new Operation() {
+            @Override
+            protected void execute() {
+                laterStarted.countDown();
+                finish();
+            }
+        };
+        queue.addOperations(first, second);
+        assertTrue(batchExecuted.await(5, TimeUnit.SECONDS));
+        queue.addOperation(later);
+
+        assertFalse(laterStarted.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(1, queue.getInFlightOperationCount());
+
+        synchronized (executedMembers) {
+            assertEquals(2, executedMembers.size());
+            executedMembers.get(0).finish();
+        }
+        assertFalse(laterStarted.await(200, TimeUnit.MILLISECONDS));
+
+        synchronized (executedMembers) {
+            executedMembers.get(1).finish();
+        }
+        assertTrue(laterStarted.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+        assertEquals(0, queue.getInFlightOperationCount());
+    }
+
+    private static final class BatchedOperation extends Operation {
+        BatchedOperation() {
+            setBatchType("batch");
+        }
+
+        @Override
+        protected void execute() {
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventDispatcherTest {
+    private static final int OPERATION_COUNT = 100;
+
+    @Test
+    void dropPolicyNeverDropsCompletionHandlers() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(4);
+        queue.enableEventDispatcher(4, EventOverflowPolicy.DROP);
+
+        // Holds the dispatcher thread, so the buffer fills up behind it.
+        CountDownLatch dispatcherHeld = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Operation blocking = new FinishingOperation(null);
+        blocking.addObserver(new OperationObserver() {
+            @Override
+            protected void operationDidStart() {
+                dispatcherHeld.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            protected void operationDidAbort() {
+            }
+
+            @Override
+            protected void operationDidFinish() {
+            }
+        });
+        queue.addOperation(blocking);
+        assertTrue(dispatcherHeld.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch finished = new CountDownLatch(OPERATION_COUNT);
+        CountDownLatch completed = new CountDownLatch(OPERATION_COUNT);
+        for (int i = 0; i < OPERATION_COUNT; i++) {
+            Operation operation = new FinishingOperation(finished);
+            operation.setCompletionHandler(new CompletionHandler() {
+                @Override
+                protected void onComplete() {
+                    completed.countDown();
+                }
+            });
+            queue.addOperation(operation);
+        }
+
+        // Every event is published before the dispatcher moves on, so most of them find the buffer full.
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        assertTrue(completed.await(5, TimeUnit.SECONDS));
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+        queue.shutdown();
+    }
+
+    private static final class FinishingOperation extends Operation {
+        private final CountDownLatch finished;
+
+        FinishingOperation(CountDownLatch finished) {
+            this.finished = finished;
+        }
+
+        @Override
+        protected void execute() {
+            finish();
+            if (finished != null) {
+                finished.countDown();
+            }
+        }
+    }
+}
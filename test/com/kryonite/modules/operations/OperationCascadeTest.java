@@ -0,0 +1,96 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OperationCascadeTest {
+    private static final int SIZE = 1000000;
+    private static final long CASCADE_TIMEOUT_SECONDS = 60;
+
+    @Test
+    void cancellingTheRootOfAMillionNodeChainAbortsEveryNode() throws InterruptedException {
+        assertCancellationCascades(1);
+    }
+
+    @Test
+    void cancellingTheRootOfAMillionNodeTreeAbortsEveryNode() throws InterruptedException {
+        assertCancellationCascades(4);
+    }
+
+    @Test
+    void millionNodeChainCompletes() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(4, ExecutionMode.WORK_STEALING);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        AtomicInteger completed = new AtomicInteger(0);
+        List<Operation> operations = newTree(1, completed);
+
+        queue.addOperationGraph(operations);
+
+        assertTrue(queue.awaitAll(CASCADE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(SIZE + 1, completed.get());
+        for (Operation operation : operations) {
+            assertTrue(operation.isFinished());
+        }
+    }
+
+    @Test
+    void millionNodeTreeCompletes() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(4);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        AtomicInteger completed = new AtomicInteger(0);
+        List<Operation> operations = newTree(4, completed);
+
+        queue.addOperationGraph(operations);
+
+        assertTrue(queue.awaitAll(CASCADE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(SIZE + 1, completed.get());
+        for (Operation operation : operations) {
+            assertTrue(operation.isFinished());
+        }
+    }
+
+    private static void assertCancellationCascades(int fanOut) throws InterruptedException {
+        OperationQueue queue = new OperationQueue(4);
+        AtomicInteger completed = new AtomicInteger(0);
+        List<Operation> operations = newTree(fanOut, completed);
+        queue.addOperationGraph(operations.subList(1, operations.size()));
+
+        operations.get(0).cancel();
+
+        assertTrue(queue.awaitAll(CASCADE_TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(SIZE + 1, completed.get());
+        assertEquals(0, queue.getOperationCount());
+        for (Operation operation : operations) {
+            assertTrue(operation.isAborted());
+        }
+    }
+
+    // A root and a million operations, each depending on the operation at (index - 1) / fanOut. A fan-out of one makes it a chain.
+    private static List<Operation> newTree(int fanOut, final AtomicInteger completed) {
+        List<Operation> operations = new ArrayList<>(SIZE + 1);
+        for (int i = 0; i <= SIZE; i++) {
+            Operation operation = new Operation() {
+                @Override
+                protected void execute() {
+                }
+            };
+            operation.setCompletionHandler(new CompletionHandler() {
+                @Override
+                protected void onComplete() {
+                    completed.incrementAndGet();
+                }
+            });
+            if (i > 0) {
+                operation.addDependency(operations.get((i - 1) / fanOut));
+            }
+            operations.add(operation);
+        }
+        return operations;
+    }
+}
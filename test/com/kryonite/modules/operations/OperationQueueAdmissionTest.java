@@ -0,0 +1,128 @@
+package com.kryonite.modules.operations;
+
+import java.util.List;
+import java.nio.file.Path;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OperationQueueAdmissionTest {
+    @TempDir
+    Path journalDirectory;
+
+    @Test
+    void resumeFromJournalThrowsWhenTheRecoveredOperationsAreRejected() throws IOException, InterruptedException {
+        journalUnfinishedOperations(3);
+
+        OperationJournal journal = new OperationJournal(journalDirectory);
+        journal.registerFactory("noop", new NoOpFactory());
+        OperationQueue queue = new OperationQueue(2);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setJournal(journal);
+        queue.setCapacity(2, AdmissionPolicy.REJECT);
+
+        assertThrows(IllegalStateException.class, queue::resumeFromJournal);
+        assertEquals(0, queue.getOperationCount());
+        assertEquals(3, journal.getPendingOperationCount());
+
+        // Once the queue has room, the operations left in the journal resume.
+        queue.setCapacity(3, AdmissionPolicy.REJECT);
+        List<Operation> operations = queue.resumeFromJournal();
+
+        assertEquals(3, operations.size());
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+        assertEquals(0, journal.getPendingOperationCount());
+        journal.close();
+    }
+
+    @Test
+    void resumeFromJournalThrowsOnceTheQueueIsShutDown() throws IOException {
+        journalUnfinishedOperations(1);
+
+        OperationJournal journal = new OperationJournal(journalDirectory);
+        journal.registerFactory("noop", new NoOpFactory());
+        OperationQueue queue = new OperationQueue(2);
+        queue.setJournal(journal);
+        queue.shutdown();
+
+        assertThrows(IllegalStateException.class, queue::resumeFromJournal);
+        assertEquals(1, journal.getPendingOperationCount());
+        journal.close();
+    }
+
+    @Test
+    void callerRunsKeepsTheInterruptStatusOfTheCaller() {
+        OperationQueue queue = new OperationQueue(2);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setCapacity(1, AdmissionPolicy.CALLER_RUNS);
+        // Never becomes ready, so it holds the only place in the queue.
+        Operation waiting = new NoOpOperation();
+        waiting.addDependency(new NoOpOperation());
+        queue.addOperation(waiting);
+
+        Operation operation = new NoOpOperation();
+        Thread.currentThread().interrupt();
+        AdmissionResult result = queue.addOperation(operation);
+
+        assertTrue(Thread.interrupted());
+        assertEquals(AdmissionResult.RAN_ON_CALLER, result);
+        assertTrue(operation.isFinished());
+    }
+
+    @Test
+    void callerRunsLeavesAnUninterruptedCallerUninterrupted() {
+        OperationQueue queue = new OperationQueue(2);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        queue.setCapacity(1, AdmissionPolicy.CALLER_RUNS);
+        Operation waiting = new NoOpOperation();
+        waiting.addDependency(new NoOpOperation());
+        queue.addOperation(waiting);
+
+        // Cancelled while it runs on the caller, which interrupts the caller thread.
+        Operation operation = new Operation() {
+            @Override
+            protected void execute() {
+                cancel();
+            }
+        };
+        AdmissionResult result = queue.addOperation(operation);
+
+        assertFalse(Thread.interrupted());
+        assertEquals(AdmissionResult.RAN_ON_CALLER, result);
+        assertTrue(operation.isAborted());
+    }
+
+    // Journals operations blocked on a dependency that never completes, then closes the journal as a stopped JVM would leave it.
+    private void journalUnfinishedOperations(int count) throws IOException {
+        OperationJournal journal = new OperationJournal(journalDirectory);
+        OperationQueue queue = new OperationQueue(2);
+        queue.setJournal(journal);
+        Operation gate = new NoOpOperation();
+        for (int i = 0; i < count; i++) {
+            Operation operation = new NoOpOperation();
+            operation.setJournalEntry("noop", new byte[0]);
+            operation.addDependency(gate);
+            queue.addOperation(operation);
+        }
+        journal.close();
+    }
+
+    private static class NoOpOperation extends Operation {
+        @Override
+        protected void execute() {
+        }
+    }
+
+    private static class NoOpFactory extends OperationFactory {
+        @Override
+        protected Operation create(byte[] payload) {
+            return new NoOpOperation();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OperationQueueContinuationTest {
+    @Test
+    void continuationRunsWhenTheOperationBeforeItThrows() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(2, ExecutionMode.WORK_STEALING);
+        queue.setMaxInFlightOperations(4);
+        // Finishes, which makes its dependent the continuation of the worker, and then throws.
+        Operation throwing = new Operation() {
+            @Override
+            protected void execute() {
+                finish();
+                throw new IllegalStateException("Thrown after finishing.");
+            }
+        };
+        Operation dependent = new Operation() {
+            @Override
+            protected void execute() {
+                finish();
+            }
+        };
+        dependent.addDependency(throwing);
+
+        queue.addOperations(throwing, dependent);
+
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+        assertTrue(dependent.isFinished());
+        assertEquals(0, queue.getInFlightOperationCount());
+    }
+}
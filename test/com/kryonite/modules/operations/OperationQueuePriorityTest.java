@@ -0,0 +1,70 @@
+package com.kryonite.modules.operations;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OperationQueuePriorityTest {
+    private static final int BACKLOG_SIZE = 20000;
+    private static final int URGENT_COUNT = 200;
+    private static final long SPIN_MICROS = 50;
+
+    @Test
+    void highPriorityP99StaysLowBehindLowPriorityBacklog() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(4);
+        queue.canAutoFinishOperationsOnCompletion(true);
+
+        CountDownLatch backlogLatch = new CountDownLatch(BACKLOG_SIZE);
+        for (int i = 0; i < BACKLOG_SIZE; i++) {
+            SpinningOperation operation = new SpinningOperation(backlogLatch, null, 0);
+            operation.setQueuePriority(QueuePriority.LOW);
+            queue.addOperation(operation);
+        }
+
+        long urgentSubmittedAt = System.nanoTime();
+        CountDownLatch urgentLatch = new CountDownLatch(URGENT_COUNT);
+        long[] latencies = new long[URGENT_COUNT];
+        for (int i = 0; i < URGENT_COUNT; i++) {
+            SpinningOperation operation = new SpinningOperation(urgentLatch, latencies, i);
+            operation.setQueuePriority(QueuePriority.HIGH);
+            queue.addOperation(operation);
+        }
+
+        assertTrue(urgentLatch.await(30, TimeUnit.SECONDS));
+        assertTrue(backlogLatch.await(30, TimeUnit.SECONDS));
+        long backlogDrainTime = System.nanoTime() - urgentSubmittedAt;
+
+        // In FIFO order the urgent operations would wait for most of the backlog.
+        Arrays.sort(latencies);
+        long p99 = latencies[(int) Math.ceil(0.99 * URGENT_COUNT) - 1];
+        assertTrue(p99 < backlogDrainTime / 4, "p99 " + TimeUnit.NANOSECONDS.toMicros(p99) + "us, backlog drained in "
+                + TimeUnit.NANOSECONDS.toMicros(backlogDrainTime) + "us");
+    }
+
+    private static class SpinningOperation extends Operation {
+        private final long submittedAt = System.nanoTime();
+
+        SpinningOperation(final CountDownLatch latch, final long[] latencies, final int index) {
+            setCompletionHandler(new CompletionHandler() {
+                @Override
+                protected void onComplete() {
+                    if (latencies != null) {
+                        latencies[index] = System.nanoTime() - submittedAt;
+                    }
+                    latch.countDown();
+                }
+            });
+        }
+
+        @Override
+        protected void execute() {
+            long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(SPIN_MICROS);
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class OperationQueueShutdownTest {
+    @Test
+    void awaitTerminationWaitsForShutdown() throws InterruptedException {
+        OperationQueue queue = new OperationQueue(2);
+        // The executor terminates on its own as soon as the queue is idle.
+        queue.setExecutorKeepAlive(0);
+        queue.addOperation(new FinishingOperation());
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+
+        assertFalse(queue.awaitTermination(200, TimeUnit.MILLISECONDS));
+
+        Thread shutdownThread = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.shutdown();
+        });
+        shutdownThread.start();
+        assertTrue(queue.awaitTermination(5, TimeUnit.SECONDS));
+        shutdownThread.join();
+    }
+
+    private static final class FinishingOperation extends Operation {
+        @Override
+        protected void execute() {
+            finish();
+        }
+    }
+}
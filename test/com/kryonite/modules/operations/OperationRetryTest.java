@@ -0,0 +1,76 @@
+package com.kryonite.modules.operations;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OperationRetryTest {
+    @Test
+    void queueTimeoutDoesNotRunThroughTheRetryBackoff() throws InterruptedException {
+        OperationQueue queue = newQueueWithTimeout(300);
+        // The first attempt fails after 200ms, and the retry waits 500ms, well past the 300ms timeout of the first attempt.
+        SleepingOperation operation = new SleepingOperation(200, 0);
+        operation.setRetryPolicy(newRetryPolicy(500));
+
+        queue.addOperation(operation);
+
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+        assertEquals(2, operation.getAttemptCount());
+        assertTrue(operation.isFinished());
+        assertFalse(operation.isAborted());
+    }
+
+    @Test
+    void queueTimeoutStillAppliesToTheRetriedAttempt() throws InterruptedException {
+        OperationQueue queue = newQueueWithTimeout(300);
+        SleepingOperation operation = new SleepingOperation(200, 2000);
+        operation.setRetryPolicy(newRetryPolicy(500));
+
+        queue.addOperation(operation);
+
+        assertTrue(queue.awaitAll(5, TimeUnit.SECONDS));
+        assertEquals(2, operation.getAttemptCount());
+        assertTrue(operation.isAborted());
+    }
+
+    private static OperationQueue newQueueWithTimeout(long timeout) {
+        OperationQueue queue = new OperationQueue(2);
+        queue.setOperationTimeout(timeout);
+        queue.canAutoFinishOperationsOnCompletion(true);
+        return queue;
+    }
+
+    private static RetryPolicy newRetryPolicy(long backoff) {
+        RetryPolicy retryPolicy = new RetryPolicy(3, backoff, backoff);
+        retryPolicy.setJitter(0);
+        return retryPolicy;
+    }
+
+    // Sleeps and fails its first attempt, then sleeps through the second one.
+    private static class SleepingOperation extends Operation {
+        private final long failingAttemptMillis;
+        private final long retriedAttemptMillis;
+
+        SleepingOperation(long failingAttemptMillis, long retriedAttemptMillis) {
+            this.failingAttemptMillis = failingAttemptMillis;
+            this.retriedAttemptMillis = retriedAttemptMillis;
+        }
+
+        @Override
+        protected void execute() {
+            try {
+                if (getAttemptCount() == 1) {
+                    Thread.sleep(failingAttemptMillis);
+                    fail();
+                } else {
+                    Thread.sleep(retriedAttemptMillis);
+                }
+            } catch (InterruptedException exception) {
+                // Interrupted by the timeout.
+            }
+        }
+    }
+}